@@ -0,0 +1,126 @@
+package com.probendi.itgraph;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of {@link Edge#compareTo(Edge)}, {@link Edge#equals(Object)} and {@link Edge#hashCode()} when
+ * edges are stored in sets, as done by {@link Graph} and {@link GraphDelta}. Half of the edges are created reversed,
+ * so both orientations of an undirected edge are exercised.
+ *
+ * @author Daniele Di Salvo
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EdgeBenchmark {
+
+    @Param({"1000", "100000"})
+    int size;
+
+    private List<Edge> edges;
+    private List<Edge> reversed;
+    private Set<Edge> treeSet;
+    private Set<Edge> hashSet;
+
+    /**
+     * Explicit empty constructor.
+     */
+    public EdgeBenchmark() {
+    }
+
+    /**
+     * Generates the edges.
+     */
+    @Setup
+    public void setUp() {
+        var random = new Random(42);
+        edges = new ArrayList<>();
+        for (var edge : new GraphGenerator().setSize(size).generate().getEdges()) {
+            edges.add(random.nextBoolean() ? edge : new Edge(edge.target(), edge.source()));
+        }
+        Collections.shuffle(edges, random);
+        reversed = edges.stream().map(edge -> new Edge(edge.target(), edge.source())).toList();
+        treeSet = new TreeSet<>(edges);
+        hashSet = new HashSet<>(edges);
+    }
+
+    /**
+     * Adds all edges to a new tree set.
+     *
+     * @return the tree set
+     */
+    @Benchmark
+    public Set<Edge> treeSetAdd() {
+        return new TreeSet<>(edges);
+    }
+
+    /**
+     * Looks up all edges, in the opposite direction, in a tree set.
+     *
+     * @param blackhole the blackhole
+     */
+    @Benchmark
+    public void treeSetContains(Blackhole blackhole) {
+        for (var edge : reversed) {
+            blackhole.consume(treeSet.contains(edge));
+        }
+    }
+
+    /**
+     * Adds all edges to a new hash set.
+     *
+     * @return the hash set
+     */
+    @Benchmark
+    public Set<Edge> hashSetAdd() {
+        return new HashSet<>(edges);
+    }
+
+    /**
+     * Looks up all edges, in the opposite direction, in a hash set.
+     *
+     * @param blackhole the blackhole
+     */
+    @Benchmark
+    public void hashSetContains(Blackhole blackhole) {
+        for (var edge : reversed) {
+            blackhole.consume(hashSet.contains(edge));
+        }
+    }
+
+    /**
+     * Compares each edge with the same edge in the opposite direction.
+     *
+     * @param blackhole the blackhole
+     */
+    @Benchmark
+    public void equalsReversed(Blackhole blackhole) {
+        for (int i = 0; i < edges.size(); i++) {
+            blackhole.consume(edges.get(i).equals(reversed.get(i)));
+        }
+    }
+}
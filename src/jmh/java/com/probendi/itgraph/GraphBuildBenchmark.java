@@ -0,0 +1,193 @@
+package com.probendi.itgraph;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the construction of a {@link Graph} from the rows returned by the database, as done by
+ * {@link NodeRepository#fetchGraph()}. The rows of a single query joining each node with the edges it is the source
+ * of, as stored once in canonical order, are compared with the rows of two separate queries. Besides the time, the
+ * number of rows and of bytes transferred by the database per operation are reported as the {@code rows} and
+ * {@code bytes} secondary results. Run with {@code -prof gc} to compare allocations too.
+ *
+ * @author Daniele Di Salvo
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GraphBuildBenchmark {
+
+    /**
+     * The size of the header of a row sent by PostgreSQL: the message type, the message length and the number of
+     * columns.
+     */
+    private static final int ROW_HEADER_SIZE = 1 + 4 + 2;
+
+    /**
+     * The size of the length that precedes each column of a row sent by PostgreSQL.
+     */
+    private static final int COLUMN_HEADER_SIZE = 4;
+
+    @Param({"1000", "100000"})
+    int size;
+
+    private List<Object[]> joinedRows;
+    private List<Object[]> nodeRows;
+    private List<Object[]> edgeRows;
+    private long joinedBytes;
+    private long separateBytes;
+
+    /**
+     * Explicit empty constructor.
+     */
+    public GraphBuildBenchmark() {
+    }
+
+    /**
+     * The number of rows and of bytes transferred by the database to build the graph once.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Transfer {
+
+        /**
+         * The number of rows.
+         */
+        public long rows;
+
+        /**
+         * The number of bytes, as sent by PostgreSQL in text format.
+         */
+        public long bytes;
+
+        /**
+         * Explicit empty constructor.
+         */
+        public Transfer() {
+        }
+    }
+
+    /**
+     * Generates the rows.
+     */
+    @Setup
+    public void setUp() {
+        var graph = new GraphGenerator().setSize(size).generate();
+
+        var targets = new HashMap<String, List<String>>();
+        graph.getEdges().forEach(edge ->
+                targets.computeIfAbsent(edge.source(), k -> new ArrayList<>()).add(edge.target()));
+
+        // SELECT n.id, n.x, n.y, n.type, e.target FROM nodes AS n LEFT JOIN edges AS e ON e.source = n.id
+        joinedRows = new ArrayList<>();
+        nodeRows = new ArrayList<>();
+        graph.getNodes().forEach(node -> {
+            var type = node.getType().name();
+            nodeRows.add(new Object[]{node.getId(), node.getX(), node.getY(), type});
+            var nodeTargets = targets.getOrDefault(node.getId(), List.of());
+            if (nodeTargets.isEmpty()) {
+                joinedRows.add(new Object[]{node.getId(), node.getX(), node.getY(), type, null});
+            }
+            for (var target : nodeTargets) {
+                joinedRows.add(new Object[]{node.getId(), node.getX(), node.getY(), type, target});
+            }
+        });
+
+        edgeRows = new ArrayList<>();
+        graph.getEdges().forEach(edge -> edgeRows.add(new Object[]{edge.source(), edge.target()}));
+
+        joinedBytes = bytes(joinedRows);
+        separateBytes = bytes(nodeRows) + bytes(edgeRows);
+    }
+
+    /**
+     * Builds the graph from the rows of a single query joining nodes and edges.
+     *
+     * @param transfer the rows and bytes transferred
+     * @return the graph
+     */
+    @Benchmark
+    public Graph joined(Transfer transfer) {
+        var graph = new Graph();
+        for (var row : joinedRows) {
+            var id = (String) row[0];
+            var x = (Integer) row[1];
+            var y = (Integer) row[2];
+            var type = NodeType.valueOf((String) row[3]);
+            var target = (String) row[4];
+
+            graph.addNode(new Node().setId(id).setX(x).setY(y).setType(type));
+            if (target != null) {
+                graph.addEdge(new Edge(id, target));
+            }
+        }
+        transfer.rows = joinedRows.size();
+        transfer.bytes = joinedBytes;
+        return graph;
+    }
+
+    /**
+     * Builds the graph from the rows of two separate queries, one for nodes and one for edges.
+     *
+     * @param transfer the rows and bytes transferred
+     * @return the graph
+     */
+    @Benchmark
+    public Graph separate(Transfer transfer) {
+        var graph = new Graph();
+        for (var row : nodeRows) {
+            var id = (String) row[0];
+            var x = (Integer) row[1];
+            var y = (Integer) row[2];
+            var type = NodeType.valueOf((String) row[3]);
+            graph.addNode(new Node().setId(id).setX(x).setY(y).setType(type));
+        }
+        for (var row : edgeRows) {
+            graph.addEdge(new Edge((String) row[0], (String) row[1]));
+        }
+        transfer.rows = nodeRows.size() + edgeRows.size();
+        transfer.bytes = separateBytes;
+        return graph;
+    }
+
+    /**
+     * Returns the number of bytes sent by PostgreSQL for the given rows in text format, the protocol overhead
+     * included.
+     *
+     * @param rows the rows
+     * @return the number of bytes sent by PostgreSQL for the given rows
+     */
+    private static long bytes(List<Object[]> rows) {
+        var bytes = 0L;
+        for (var row : rows) {
+            bytes += ROW_HEADER_SIZE;
+            for (var column : row) {
+                bytes += COLUMN_HEADER_SIZE;
+                if (column != null) {
+                    bytes += column.toString().getBytes(StandardCharsets.UTF_8).length;
+                }
+            }
+        }
+        return bytes;
+    }
+}
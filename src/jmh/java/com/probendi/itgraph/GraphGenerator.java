@@ -0,0 +1,206 @@
+package com.probendi.itgraph;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.SplittableRandom;
+
+/**
+ * Generates synthetic graphs with the same structure as the ones drawn by hand: a root lexeme is divided by divisions
+ * and oppositions, whose members are lexemes that are divided in turn. Optionally, some lexemes are also linked to
+ * other lexemes, which are printed as dotted lines. The same seed always generates the same graph.
+ *
+ * @author Daniele Di Salvo
+ * @since 1.0.0
+ */
+public final class GraphGenerator {
+
+    /**
+     * The id of the root lexeme.
+     */
+    public static final String ROOT = "l0";
+
+    /**
+     * The order in which nodes are divided.
+     */
+    public enum Shape {
+        /**
+         * Nodes are divided level by level, which generates shallow and wide graphs.
+         */
+        BROAD,
+        /**
+         * The most recently generated node is divided first, which generates deep and narrow graphs.
+         */
+        DEEP
+    }
+
+    private long seed = 42;
+    private int size = 1000;
+    private int fanOut = 4;
+    private int maxDepth = Integer.MAX_VALUE;
+    private double crossLinks;
+    private Shape shape = Shape.BROAD;
+
+    /**
+     * Explicit empty constructor.
+     */
+    public GraphGenerator() {
+    }
+
+    /**
+     * Sets the seed of the random generator.
+     *
+     * @param seed the seed to be set
+     * @return this generator
+     */
+    public GraphGenerator setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of nodes.
+     *
+     * @param size the maximum number of nodes to be set
+     * @return this generator
+     */
+    public GraphGenerator setSize(int size) {
+        this.size = size;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of lexemes of a division. An opposition always has two lexemes.
+     *
+     * @param fanOut the maximum number of lexemes of a division to be set
+     * @return this generator
+     */
+    public GraphGenerator setFanOut(int fanOut) {
+        this.fanOut = fanOut;
+        return this;
+    }
+
+    /**
+     * Sets the maximum distance of a node from the root. If it is too small, fewer nodes than requested are
+     * generated.
+     *
+     * @param maxDepth the maximum distance of a node from the root to be set
+     * @return this generator
+     */
+    public GraphGenerator setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    /**
+     * Sets the number of links between lexemes, as a fraction of the number of lexemes.
+     *
+     * @param crossLinks the number of links between lexemes to be set
+     * @return this generator
+     */
+    public GraphGenerator setCrossLinks(double crossLinks) {
+        this.crossLinks = crossLinks;
+        return this;
+    }
+
+    /**
+     * Sets the shape.
+     *
+     * @param shape the shape to be set
+     * @return this generator
+     */
+    public GraphGenerator setShape(Shape shape) {
+        this.shape = shape;
+        return this;
+    }
+
+    /**
+     * Generates a graph.
+     *
+     * @return the generated graph
+     */
+    public Graph generate() {
+        var random = new SplittableRandom(seed);
+        var graph = new Graph();
+        var counter = new int[NodeType.values().length];
+        Deque<Entry> frontier = new ArrayDeque<>();
+
+        var root = new Node(ROOT, 0, 0, NodeType.LEXEME);
+        counter[NodeType.LEXEME.ordinal()]++;
+        graph.addNode(root);
+        frontier.add(new Entry(root, 0));
+
+        var nodes = 1;
+        while (nodes < size && !frontier.isEmpty()) {
+            var parent = shape == Shape.BROAD ? frontier.pollFirst() : frontier.pollLast();
+            var depth = parent.depth + 1;
+            if (depth > maxDepth) {
+                continue;
+            }
+            int children;
+            if (parent.node.getType() == NodeType.LEXEME) {
+                children = 1;
+            } else if (parent.node.getType() == NodeType.OPPOSITION) {
+                children = 2;
+            } else {
+                children = 2 + random.nextInt(Math.max(1, fanOut - 1));
+            }
+            for (int i = 0; i < children && nodes < size; i++, nodes++) {
+                var type = childType(parent.node.getType(), random);
+                var id = prefix(type) + counter[type.ordinal()]++;
+                var child = new Node(id, depth * 200, random.nextInt(100_000), type);
+                graph.addNode(child);
+                graph.addEdge(new Edge(parent.node.getId(), id));
+                frontier.add(new Entry(child, depth));
+            }
+        }
+
+        // the root lexeme is never linked to other lexemes
+        var lexemes = counter[NodeType.LEXEME.ordinal()];
+        var links = lexemes > 2 ? (int) Math.round(crossLinks * lexemes) : 0;
+        for (int i = 0; i < links; i++) {
+            var source = 1 + random.nextInt(lexemes - 1);
+            var target = 1 + random.nextInt(lexemes - 1);
+            if (source != target) {
+                graph.addEdge(new Edge(prefix(NodeType.LEXEME) + source, prefix(NodeType.LEXEME) + target));
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Returns the type of a child of a node of the given type.
+     *
+     * @param parent the type of the parent
+     * @param random the random generator
+     * @return the type of the child
+     */
+    private static NodeType childType(NodeType parent, SplittableRandom random) {
+        if (parent != NodeType.LEXEME) {
+            return NodeType.LEXEME;
+        }
+        return random.nextInt(3) == 0 ? NodeType.OPPOSITION : NodeType.DIVISION;
+    }
+
+    /**
+     * Returns the prefix of the ids of the nodes of the given type.
+     *
+     * @param type the type
+     * @return the prefix of the ids
+     */
+    private static String prefix(NodeType type) {
+        return switch (type) {
+            case LEXEME -> "l";
+            case DIVISION -> "d";
+            case OPPOSITION -> "o";
+        };
+    }
+
+    /**
+     * A node waiting to be divided.
+     *
+     * @param node  the node
+     * @param depth the distance from the root
+     */
+    private record Entry(Node node, int depth) {
+    }
+}
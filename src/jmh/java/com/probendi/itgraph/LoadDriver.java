@@ -0,0 +1,406 @@
+package com.probendi.itgraph;
+
+import com.fasterxml.jackson.core.JsonFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Replays a mixed workload of graph reads, node drags, edge edits and printouts against a running instance, then
+ * reports the throughput and the latency percentiles of each operation. Unless {@code --upload=false} is given, the
+ * graph is first replaced with a graph generated by {@link GraphGenerator}.
+ * <p>
+ * Options, all in the form {@code --name=value}:
+ * <ul>
+ *     <li>{@code url}: the base URL of the instance, {@code http://localhost:8080} by default</li>
+ *     <li>{@code nodes}, {@code fan-out}, {@code max-depth}, {@code cross-links}, {@code seed}: the generated graph,
+ *     {@code 10000}, {@code 4}, {@code 24}, {@code 0.05} and {@code 42} by default</li>
+ *     <li>{@code upload}: whether the generated graph is uploaded, {@code true} by default</li>
+ *     <li>{@code threads}: the number of concurrent clients, {@code 8} by default</li>
+ *     <li>{@code warmup}, {@code duration}: the seconds of warmup and of measurement, {@code 10} and {@code 60} by
+ *     default</li>
+ *     <li>{@code reads}, {@code drags}, {@code edges}, {@code printouts}: the weights of the operations, {@code 10},
+ *     {@code 70}, {@code 10} and {@code 10} by default</li>
+ * </ul>
+ *
+ * @author Daniele Di Salvo
+ * @since 1.0.0
+ */
+public final class LoadDriver {
+
+    /**
+     * The operations of the workload.
+     */
+    private enum Operation {
+        /**
+         * Reads the whole graph.
+         */
+        READ("reads"),
+        /**
+         * Moves a node.
+         */
+        DRAG("drags"),
+        /**
+         * Creates an edge between two lexemes and deletes it.
+         */
+        EDGE("edges"),
+        /**
+         * Prints the graph starting from a lexeme.
+         */
+        PRINTOUT("printouts");
+
+        private final String option;
+
+        /**
+         * Creates an operation.
+         *
+         * @param option the name of the option setting the weight of the operation
+         */
+        Operation(String option) {
+            this.option = option;
+        }
+    }
+
+    private final Map<String, String> options;
+    private final URI url;
+    private final HttpClient client;
+    private final List<Node> nodes;
+    private final List<Node> lexemes;
+    private final Graph graph;
+    private final int[] weights = new int[Operation.values().length];
+
+    /**
+     * Creates a driver with the given options.
+     *
+     * @param options the options
+     */
+    private LoadDriver(Map<String, String> options) {
+        this.options = options;
+        this.url = URI.create(option("url", "http://localhost:8080"));
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        this.graph = new GraphGenerator()
+                .setSeed(Long.parseLong(option("seed", "42")))
+                .setSize(Integer.parseInt(option("nodes", "10000")))
+                .setFanOut(Integer.parseInt(option("fan-out", "4")))
+                .setMaxDepth(Integer.parseInt(option("max-depth", "24")))
+                .setCrossLinks(Double.parseDouble(option("cross-links", "0.05")))
+                .generate();
+        this.nodes = new ArrayList<>(graph.getNodes());
+        this.lexemes = nodes.stream().filter(node -> node.getType() == NodeType.LEXEME).toList();
+        weights[Operation.READ.ordinal()] = Integer.parseInt(option(Operation.READ.option, "10"));
+        weights[Operation.DRAG.ordinal()] = Integer.parseInt(option(Operation.DRAG.option, "70"));
+        weights[Operation.EDGE.ordinal()] = Integer.parseInt(option(Operation.EDGE.option, "10"));
+        weights[Operation.PRINTOUT.ordinal()] = Integer.parseInt(option(Operation.PRINTOUT.option, "10"));
+    }
+
+    /**
+     * Runs the driver.
+     *
+     * @param args the options, in the form {@code --name=value}
+     * @throws Exception if the workload cannot be run
+     */
+    public static void main(String[] args) throws Exception {
+        var options = new HashMap<String, String>();
+        for (var arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Invalid option: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        new LoadDriver(options).run();
+    }
+
+    /**
+     * Uploads the graph, if required, then runs the workload and prints the report.
+     *
+     * @throws Exception if the workload cannot be run
+     */
+    private void run() throws Exception {
+        if (Boolean.parseBoolean(option("upload", "true"))) {
+            var start = System.nanoTime();
+            upload();
+            System.out.printf("Uploaded %d nodes and %d edges in %d ms%n", graph.getNodes().size(),
+                    graph.getEdges().size(), (System.nanoTime() - start) / 1_000_000);
+        }
+
+        var threads = Integer.parseInt(option("threads", "8"));
+        var warmup = Duration.ofSeconds(Long.parseLong(option("warmup", "10"))).toNanos();
+        var duration = Duration.ofSeconds(Long.parseLong(option("duration", "60"))).toNanos();
+        var measureFrom = System.nanoTime() + warmup;
+        var measureUntil = measureFrom + duration;
+
+        var recorders = new ArrayList<Recorder>();
+        try (var executor = Executors.newFixedThreadPool(threads)) {
+            var futures = new ArrayList<Future<Recorder>>();
+            for (int i = 0; i < threads; i++) {
+                var random = new SplittableRandom(Long.parseLong(option("seed", "42")) + i);
+                futures.add(executor.submit(worker(random, measureFrom, measureUntil)));
+            }
+            for (var future : futures) {
+                recorders.add(future.get());
+            }
+        }
+        report(recorders, duration);
+    }
+
+    /**
+     * Returns a client that runs random operations until the end of the measurement.
+     *
+     * @param random       the random generator of the client
+     * @param measureFrom  the time the measurement starts at, in nanoseconds
+     * @param measureUntil the time the measurement ends at, in nanoseconds
+     * @return the client
+     */
+    private Callable<Recorder> worker(SplittableRandom random, long measureFrom, long measureUntil) {
+        return () -> {
+            var recorder = new Recorder();
+            var total = Arrays.stream(weights).sum();
+            long start;
+            while ((start = System.nanoTime()) < measureUntil) {
+                var operation = pick(random.nextInt(total));
+                var ok = execute(operation, random);
+                if (start >= measureFrom) {
+                    recorder.record(operation, System.nanoTime() - start, ok);
+                }
+            }
+            return recorder;
+        };
+    }
+
+    /**
+     * Returns the operation corresponding to the given weighted choice.
+     *
+     * @param choice a number between zero and the sum of the weights
+     * @return the chosen operation
+     */
+    private Operation pick(int choice) {
+        for (var operation : Operation.values()) {
+            choice -= weights[operation.ordinal()];
+            if (choice < 0) {
+                return operation;
+            }
+        }
+        throw new IllegalStateException("No operation for " + choice);
+    }
+
+    /**
+     * Executes the given operation.
+     *
+     * @param operation the operation
+     * @param random    the random generator of the client
+     * @return {@code true} if all the requests of the operation succeeded
+     * @throws IOException          if an I/O error occurs
+     * @throws InterruptedException if the client is interrupted
+     */
+    private boolean execute(Operation operation, SplittableRandom random) throws IOException, InterruptedException {
+        return switch (operation) {
+            case READ -> send(HttpRequest.newBuilder(url.resolve("/graph")).GET());
+            case DRAG -> {
+                var node = nodes.get(random.nextInt(nodes.size()));
+                var body = String.format("{\"id\":\"%s\",\"x\":%d,\"y\":%d,\"type\":\"%s\"}", node.getId(),
+                        random.nextInt(100_000), random.nextInt(100_000), node.getType());
+                yield send(HttpRequest.newBuilder(url.resolve("/nodes/" + node.getId() + "?delta=true"))
+                        .header("Content-Type", "application/json")
+                        .PUT(HttpRequest.BodyPublishers.ofString(body)));
+            }
+            case EDGE -> {
+                var source = lexemes.get(random.nextInt(lexemes.size())).getId();
+                var target = lexemes.get(random.nextInt(lexemes.size())).getId();
+                if (source.equals(target) || graph.getEdges().contains(new Edge(source, target))) {
+                    yield true;
+                }
+                var path = url.resolve("/edges/" + source + "/" + target + "?delta=true");
+                yield send(HttpRequest.newBuilder(path).POST(HttpRequest.BodyPublishers.noBody())) &&
+                        send(HttpRequest.newBuilder(path).DELETE());
+            }
+            case PRINTOUT -> {
+                var root = lexemes.get(random.nextInt(lexemes.size())).getId();
+                yield send(HttpRequest.newBuilder(url.resolve("/graph/printout/" + root)).GET());
+            }
+        };
+    }
+
+    /**
+     * Sends the given request, discarding the body of the response.
+     *
+     * @param request the request
+     * @return {@code true} if the response is successful
+     * @throws IOException          if an I/O error occurs
+     * @throws InterruptedException if the client is interrupted
+     */
+    private boolean send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        var response = client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+        return response.statusCode() / 100 == 2;
+    }
+
+    /**
+     * Replaces the graph of the instance with the generated graph.
+     *
+     * @throws IOException          if an I/O error occurs or the upload fails
+     * @throws InterruptedException if the upload is interrupted
+     */
+    private void upload() throws IOException, InterruptedException {
+        var json = new ByteArrayOutputStream();
+        try (var generator = new JsonFactory().createGenerator(json)) {
+            new GraphWriter(generator).write(graph);
+        }
+        var request = HttpRequest.newBuilder(url.resolve("/graph"))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(json.toByteArray()));
+        if (!send(request)) {
+            throw new IOException("Upload failed");
+        }
+    }
+
+    /**
+     * Prints the throughput and the latency percentiles of each operation.
+     *
+     * @param recorders the recorders of the clients
+     * @param duration  the duration of the measurement, in nanoseconds
+     */
+    private static void report(List<Recorder> recorders, long duration) {
+        var seconds = duration / 1e9;
+        System.out.printf("%-10s %10s %8s %10s %10s %10s %10s%n",
+                "operation", "count", "errors", "ops/s", "p50 ms", "p99 ms", "p999 ms");
+        var all = new Latencies();
+        var errors = 0L;
+        for (var operation : Operation.values()) {
+            var latencies = new Latencies();
+            var operationErrors = 0L;
+            for (var recorder : recorders) {
+                latencies.addAll(recorder.latencies[operation.ordinal()]);
+                operationErrors += recorder.errors[operation.ordinal()];
+            }
+            all.addAll(latencies);
+            errors += operationErrors;
+            print(operation.option, latencies, operationErrors, seconds);
+        }
+        print("total", all, errors, seconds);
+    }
+
+    /**
+     * Prints a line of the report.
+     *
+     * @param name      the name of the line
+     * @param latencies the latencies
+     * @param errors    the number of failed operations
+     * @param seconds   the duration of the measurement, in seconds
+     */
+    private static void print(String name, Latencies latencies, long errors, double seconds) {
+        latencies.sort();
+        System.out.printf("%-10s %10d %8d %10.1f %10.2f %10.2f %10.2f%n", name, latencies.size, errors,
+                latencies.size / seconds, latencies.percentile(0.5), latencies.percentile(0.99),
+                latencies.percentile(0.999));
+    }
+
+    /**
+     * Returns the value of the given option.
+     *
+     * @param name         the name of the option
+     * @param defaultValue the value returned if the option is not given
+     * @return the value of the given option
+     */
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    /**
+     * Records the latencies and the errors of a client.
+     */
+    private static final class Recorder {
+
+        private final Latencies[] latencies = new Latencies[Operation.values().length];
+        private final long[] errors = new long[Operation.values().length];
+
+        /**
+         * Creates an empty recorder.
+         */
+        private Recorder() {
+            Arrays.setAll(latencies, i -> new Latencies());
+        }
+
+        /**
+         * Records an operation.
+         *
+         * @param operation the operation
+         * @param latency   the latency, in nanoseconds
+         * @param ok        whether the operation succeeded
+         */
+        private void record(Operation operation, long latency, boolean ok) {
+            latencies[operation.ordinal()].add(latency);
+            if (!ok) {
+                errors[operation.ordinal()]++;
+            }
+        }
+    }
+
+    /**
+     * A growable array of latencies, in nanoseconds.
+     */
+    private static final class Latencies {
+
+        private long[] values = new long[1024];
+        private int size;
+
+        /**
+         * Adds a latency.
+         *
+         * @param latency the latency
+         */
+        private void add(long latency) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = latency;
+        }
+
+        /**
+         * Adds all the given latencies.
+         *
+         * @param other the latencies
+         */
+        private void addAll(Latencies other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.values[i]);
+            }
+        }
+
+        /**
+         * Sorts the latencies.
+         */
+        private void sort() {
+            Arrays.sort(values, 0, size);
+        }
+
+        /**
+         * Returns the given percentile of the sorted latencies, in milliseconds.
+         *
+         * @param quantile the percentile, between 0 and 1
+         * @return the given percentile, in milliseconds, or zero if there are no latencies
+         */
+        private double percentile(double quantile) {
+            if (size == 0) {
+                return 0;
+            }
+            var index = (int) Math.ceil(quantile * size) - 1;
+            return values[Math.max(0, index)] / 1e6;
+        }
+    }
+}
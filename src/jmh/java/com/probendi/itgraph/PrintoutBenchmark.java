@@ -0,0 +1,87 @@
+package com.probendi.itgraph;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the generation of printouts, as done by {@link GraphService#stringifyGraph(String)} when the printout is
+ * not cached, on synthetic graphs of configurable size and shape.
+ *
+ * @author Daniele Di Salvo
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrintoutBenchmark {
+
+    @Param({"1000", "100000"})
+    int size;
+
+    @Param({"4"})
+    int fanOut;
+
+    @Param({"24"})
+    int maxDepth;
+
+    @Param({"0.05"})
+    double crossLinks;
+
+    @Param({"BROAD", "DEEP"})
+    GraphGenerator.Shape shape;
+
+    private GraphSnapshot snapshot;
+
+    /**
+     * Explicit empty constructor.
+     */
+    public PrintoutBenchmark() {
+    }
+
+    /**
+     * Generates the graph and builds its index.
+     */
+    @Setup
+    public void setUp() {
+        var graph = new GraphGenerator().setSize(size).setFanOut(fanOut).setMaxDepth(maxDepth)
+                .setCrossLinks(crossLinks).setShape(shape).generate();
+        snapshot = GraphSnapshot.wrap(1, graph);
+        snapshot.getIndex();
+    }
+
+    /**
+     * Writes the printout to a writer that discards it.
+     *
+     * @throws IOException never
+     */
+    @Benchmark
+    public void write() throws IOException {
+        Printout.of(snapshot, GraphGenerator.ROOT).orElseThrow().writeTo(Writer.nullWriter());
+    }
+
+    /**
+     * Converts the printout to a string, as done before caching it.
+     *
+     * @return the printout
+     */
+    @Benchmark
+    public String asString() {
+        return Printout.of(snapshot, GraphGenerator.ROOT).orElseThrow().toString();
+    }
+}
@@ -0,0 +1,76 @@
+package com.probendi.itgraph;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the JSON serialization of a {@link Graph}, both with Jackson data binding and with {@link GraphWriter}.
+ *
+ * @author Daniele Di Salvo
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"1000", "100000"})
+    int size;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private Graph graph;
+
+    /**
+     * Explicit empty constructor.
+     */
+    public SerializationBenchmark() {
+    }
+
+    /**
+     * Generates the graph.
+     */
+    @Setup
+    public void setUp() {
+        graph = GraphSnapshot.wrap(1, new GraphGenerator().setSize(size).generate()).getGraph();
+    }
+
+    /**
+     * Serializes the graph with Jackson data binding.
+     *
+     * @throws IOException never
+     */
+    @Benchmark
+    public void databind() throws IOException {
+        mapper.writeValue(OutputStream.nullOutputStream(), graph);
+    }
+
+    /**
+     * Serializes the graph with a {@link GraphWriter}.
+     *
+     * @throws IOException never
+     */
+    @Benchmark
+    public void streaming() throws IOException {
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(OutputStream.nullOutputStream())) {
+            new GraphWriter(generator).write(graph);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.probendi.itgraph;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.validation.constraints.NotNull;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseBroadcaster;
+import jakarta.ws.rs.sse.SseEventSink;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes the changes applied to the graph to the subscribed clients as server-sent events, in revision order. Each
+ * event carries a {@link GraphDelta} and has the tag of its revision as id: a {@code delta} event carries the nodes
+ * upserted or deleted and the edges added or removed, while a {@code replaced} event tells that the whole graph has
+ * been replaced and must be reloaded.
+ * <p>
+ * The changes are sent by a dedicated thread, so that neither the thread committing them nor the changes committed
+ * after them wait for slow clients. A client that subscribes is sent the changes it has missed by the same thread, and
+ * then each later change exactly once.
+ * <p>
+ * The last {@code it-graph.changes.history} revisions are kept, as long as they carry no more than
+ * {@code it-graph.changes.history-size} nodes and edges overall, so that a client that reconnects with the tag of the
+ * last revision it has seen is sent the changes it has missed. If they are no longer available, the client is sent a
+ * {@code replaced} event instead.
+ *
+ * @author Daniele Di Salvo
+ * @since 1.0.0
+ */
+@ApplicationScoped
+public class ChangeFeed {
+
+    @ConfigProperty(name = "it-graph.changes.history", defaultValue = "1024")
+    int maxHistory;
+
+    @ConfigProperty(name = "it-graph.changes.history-size", defaultValue = "100000")
+    int maxHistorySize;
+
+    @Inject
+    GraphRevision revision;
+
+    private final Deque<GraphDelta> history = new ArrayDeque<>();
+    private int historySize;
+    private ExecutorService executor;
+    // the last revision sent, which is only written by the executor once it has started
+    private volatile long sent;
+    // only accessed by the executor
+    private Sse sse;
+    private SseBroadcaster broadcaster;
+
+    /**
+     * Explicit empty constructor.
+     */
+    public ChangeFeed() {
+    }
+
+    /**
+     * Sends the given changes to the subscribed clients. The changes must be published in revision order, and every
+     * revision must be published. The changes are kept in the history at once, but are sent later.
+     *
+     * @param delta the changes, stamped with their revision
+     */
+    synchronized void publish(@NotNull GraphDelta delta) {
+        history.addLast(delta);
+        historySize += delta.size();
+        while (!history.isEmpty() && (history.size() > maxHistory || historySize > maxHistorySize)) {
+            historySize -= history.removeFirst().size();
+        }
+        if (executor == null) {
+            // no client can have subscribed before startup
+            sent = delta.getRevision();
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                if (broadcaster != null) {
+                    broadcaster.broadcast(event(delta));
+                }
+                sent = delta.getRevision();
+            });
+        } catch (RejectedExecutionException e) {
+            // the application is shutting down
+        }
+    }
+
+    /**
+     * Subscribes the given sink to the changes applied to the graph after the given revision.
+     *
+     * @param sse   the server-sent events context
+     * @param sink  the sink
+     * @param since the tag of the last revision seen by the client, or {@code null} to receive the next changes only
+     */
+    public void subscribe(@NotNull Sse sse, @NotNull SseEventSink sink, String since) {
+        try {
+            executor.execute(() -> register(sse, sink, since));
+        } catch (RejectedExecutionException e) {
+            // the application is shutting down
+            sink.close();
+        }
+    }
+
+    /**
+     * Sends the given sink the changes it has missed and registers it, so that it is sent the changes not sent yet.
+     * This method is run by the executor.
+     *
+     * @param sse   the server-sent events context
+     * @param sink  the sink
+     * @param since the tag of the last revision seen by the client, or {@code null} to receive the next changes only
+     */
+    private void register(Sse sse, SseEventSink sink, String since) {
+        if (broadcaster == null) {
+            this.sse = sse;
+            broadcaster = sse.newBroadcaster();
+        }
+        if (since != null) {
+            replay(parse(since), sent).ifPresentOrElse(
+                    deltas -> deltas.forEach(delta -> sink.send(event(delta))),
+                    () -> sink.send(event(new GraphDelta().setReplaced(true).setRevision(sent))));
+        }
+        broadcaster.register(sink);
+    }
+
+    /**
+     * Returns the changes applied to the graph after the given revision.
+     *
+     * @param since the tag of the revision
+     * @return the changes applied after the given revision, in revision order, or an empty optional if the tag is
+     * unknown or some of the changes are no longer available
+     */
+    synchronized Optional<List<GraphDelta>> replay(@NotNull String since) {
+        return replay(parse(since), last());
+    }
+
+    /**
+     * Starts sending the changes.
+     *
+     * @param event the startup event
+     */
+    void onStart(@Observes StartupEvent event) {
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "change-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Stops sending the changes.
+     *
+     * @param event the shutdown event
+     * @throws InterruptedException if interrupted while waiting for the changes being sent
+     */
+    void onStop(@Observes ShutdownEvent event) throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Returns the changes applied to the graph after the given revision, up to the other given revision.
+     *
+     * @param from the revision, or {@code -1} if unknown
+     * @param to   the last revision to be returned, which must have been published
+     * @return the changes applied after {@code from} up to {@code to}, in revision order, or an empty optional if
+     * {@code from} is unknown or some of the changes are no longer available
+     */
+    private synchronized Optional<List<GraphDelta>> replay(long from, long to) {
+        if (from < 0 || from > to) {
+            return Optional.empty();
+        }
+        var deltas = history.stream()
+                .filter(delta -> delta.getRevision() > from && delta.getRevision() <= to)
+                .toList();
+        return deltas.size() == to - from ? Optional.of(deltas) : Optional.empty();
+    }
+
+    /**
+     * Returns the last published revision.
+     *
+     * @return the last published revision
+     */
+    private long last() {
+        return history.isEmpty() ? revision.current() : history.getLast().getRevision();
+    }
+
+    /**
+     * Returns the revision of the given tag.
+     *
+     * @param tag the tag, optionally quoted
+     * @return the revision of the given tag, or {@code -1} if the tag has not been issued by this application
+     */
+    private long parse(String tag) {
+        var unquoted = tag.replace("\"", "");
+        try {
+            var parsed = Long.parseLong(unquoted.substring(unquoted.lastIndexOf('-') + 1));
+            return revision.tag(parsed).equals(unquoted) ? parsed : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the event carrying the given changes.
+     *
+     * @param delta the changes
+     * @return the event carrying the given changes
+     */
+    private OutboundSseEvent event(GraphDelta delta) {
+        return sse.newEventBuilder()
+                .id(revision.tag(delta.getRevision()))
+                .name(delta.isReplaced() ? "replaced" : "delta")
+                .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                .data(GraphDelta.class, delta)
+                .build();
+    }
+}
@@ -0,0 +1,254 @@
+package com.probendi.itgraph;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * An immutable set of elements sorted in their natural order, which is stored as a list of sorted chunks of at most
+ * {@value #MAX_CHUNK_SIZE} elements. A changed copy of the set shares every chunk that has not changed, so that
+ * changing a few elements of a set of {@code n} elements costs {@code O(n / CHUNK_SIZE + CHUNK_SIZE)} instead of
+ * {@code O(n)}.
+ *
+ * @param <T> the type of the elements
+ * @author Daniele Di Salvo
+ * @since 1.0.0
+ */
+public final class ChunkedSet<T extends Comparable<? super T>> extends AbstractSet<T> {
+
+    /**
+     * The number of elements of a chunk when the set is built.
+     */
+    static final int CHUNK_SIZE = 512;
+
+    /**
+     * The number of elements above which a chunk is split.
+     */
+    static final int MAX_CHUNK_SIZE = 2 * CHUNK_SIZE;
+
+    private static final Object[][] NO_CHUNKS = new Object[0][];
+
+    private final Object[][] chunks;
+    private final int size;
+
+    /**
+     * Creates a set.
+     *
+     * @param chunks the chunks, each of them sorted and not empty, and the last element of each chunk less than the
+     *               first element of the next chunk
+     * @param size   the number of elements
+     */
+    private ChunkedSet(Object[][] chunks, int size) {
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    /**
+     * Returns a set of the given elements.
+     *
+     * @param elements the elements
+     * @param <T>      the type of the elements
+     * @return a set of the given elements
+     */
+    public static <T extends Comparable<? super T>> ChunkedSet<T> of(@NotNull Collection<? extends T> elements) {
+        var sorted = elements.toArray();
+        if (!isSorted(sorted)) {
+            sorted = new TreeSet<T>(elements).toArray();
+        }
+        var chunks = new Object[(sorted.length + CHUNK_SIZE - 1) / CHUNK_SIZE][];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = Arrays.copyOfRange(sorted, i * CHUNK_SIZE, Math.min((i + 1) * CHUNK_SIZE, sorted.length));
+        }
+        return new ChunkedSet<>(chunks, sorted.length);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return find(o) != null;
+    }
+
+    /**
+     * Returns the element equal to the given one.
+     *
+     * @param o the element to be looked for
+     * @return the element equal to the given one, or {@code null} if the set does not contain it
+     */
+    @SuppressWarnings("unchecked")
+    public T find(Object o) {
+        var c = chunkOf(Arrays.asList(chunks), o);
+        if (c < 0) {
+            return null;
+        }
+        var i = Arrays.binarySearch(chunks[c], o);
+        return i < 0 ? null : (T) chunks[c][i];
+    }
+
+    /**
+     * Returns a copy of this set, where the given elements are removed first, and then the given elements are added,
+     * replacing the elements equal to them. This set is not modified.
+     *
+     * @param removed the elements to be removed
+     * @param added   the elements to be added or replaced
+     * @return the changed copy of this set
+     */
+    public ChunkedSet<T> with(@NotNull Collection<?> removed, @NotNull Collection<? extends T> added) {
+        if (removed.isEmpty() && added.isEmpty()) {
+            return this;
+        }
+        if (removed.size() + added.size() > chunks.length) {
+            // changing every chunk is no cheaper than building the set again
+            var elements = new TreeSet<T>(this);
+            removed.forEach(elements::remove);
+            added.forEach(element -> {
+                elements.remove(element);
+                elements.add(element);
+            });
+            return of(elements);
+        }
+
+        var result = new ArrayList<>(Arrays.asList(chunks));
+        var copied = Collections.newSetFromMap(new IdentityHashMap<Object[], Boolean>());
+        var count = size;
+        for (var element : removed) {
+            var c = chunkOf(result, element);
+            if (c < 0) {
+                continue;
+            }
+            var chunk = result.get(c);
+            var i = Arrays.binarySearch(chunk, element);
+            if (i < 0) {
+                continue;
+            }
+            var changed = new Object[chunk.length - 1];
+            System.arraycopy(chunk, 0, changed, 0, i);
+            System.arraycopy(chunk, i + 1, changed, i, changed.length - i);
+            if (changed.length == 0) {
+                result.remove(c);
+            } else {
+                result.set(c, changed);
+                copied.add(changed);
+            }
+            count--;
+        }
+        for (var element : added) {
+            var c = Math.max(chunkOf(result, element), 0);
+            if (result.isEmpty()) {
+                result.add(new Object[]{element});
+                count++;
+                continue;
+            }
+            var chunk = result.get(c);
+            var i = Arrays.binarySearch(chunk, element);
+            if (i >= 0) {
+                if (!copied.contains(chunk)) {
+                    chunk = chunk.clone();
+                    result.set(c, chunk);
+                    copied.add(chunk);
+                }
+                chunk[i] = element;
+                continue;
+            }
+            i = -i - 1;
+            var changed = new Object[chunk.length + 1];
+            System.arraycopy(chunk, 0, changed, 0, i);
+            changed[i] = element;
+            System.arraycopy(chunk, i, changed, i + 1, chunk.length - i);
+            count++;
+            if (changed.length > MAX_CHUNK_SIZE) {
+                var middle = changed.length / 2;
+                var left = Arrays.copyOfRange(changed, 0, middle);
+                var right = Arrays.copyOfRange(changed, middle, changed.length);
+                result.set(c, left);
+                result.add(c + 1, right);
+                copied.add(left);
+                copied.add(right);
+            } else {
+                result.set(c, changed);
+                copied.add(changed);
+            }
+        }
+        return new ChunkedSet<>(result.toArray(NO_CHUNKS), count);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+
+            private int chunk;
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                return chunk < chunks.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                var element = (T) chunks[chunk][position++];
+                if (position == chunks[chunk].length) {
+                    chunk++;
+                    position = 0;
+                }
+                return element;
+            }
+        };
+    }
+
+    /**
+     * Returns the chunk where the given element is, or would be if it were added: the last chunk whose first element
+     * is not greater than the given element, or the first chunk if there is none.
+     *
+     * @param chunks  the chunks
+     * @param element the element
+     * @return the position of the chunk, or {@code -1} if there are no chunks
+     */
+    @SuppressWarnings("unchecked")
+    private static int chunkOf(List<Object[]> chunks, Object element) {
+        var low = 0;
+        var high = chunks.size() - 1;
+        while (low <= high) {
+            var middle = (low + high) >>> 1;
+            if (((Comparable<Object>) chunks.get(middle)[0]).compareTo(element) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return chunks.isEmpty() ? -1 : Math.max(high, 0);
+    }
+
+    /**
+     * Returns whether the given elements are in strictly ascending order.
+     *
+     * @param elements the elements
+     * @return {@code true} if the given elements are in strictly ascending order
+     */
+    @SuppressWarnings("unchecked")
+    private static boolean isSorted(Object[] elements) {
+        for (int i = 1; i < elements.length; i++) {
+            if (((Comparable<Object>) elements[i - 1]).compareTo(elements[i]) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
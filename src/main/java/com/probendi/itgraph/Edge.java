@@ -3,10 +3,11 @@ package com.probendi.itgraph;
 import jakarta.validation.constraints.NotBlank;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Objects;
-
 /**
- * The DTO of an edge. The graph is undirected, hence the need of implementing the {@link Comparable} interface.
+ * The DTO of an edge. The graph is undirected, hence the endpoints are stored in canonical order, that is, the source
+ * is never greater than the target when they are compared by code point, as the database does. Consequently, an edge
+ * is equal to the same edge in the opposite direction and has the same hash code, and comparing two edges costs one
+ * string comparison in most cases.
  *
  * @param source the source
  * @param target the target
@@ -15,35 +16,48 @@ import java.util.Objects;
  */
 public record Edge(@NotBlank String source, @NotBlank String target) implements Comparable<Edge> {
 
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) {
-            return true;
+    /**
+     * Creates an edge, swapping the endpoints if the source is greater than the target.
+     *
+     * @param source the source
+     * @param target the target
+     */
+    public Edge {
+        if (source != null && target != null && compareByCodePoint(source, target) > 0) {
+            var tmp = source;
+            source = target;
+            target = tmp;
         }
-        if (!(o instanceof Edge edge)) {
-            return false;
-        }
-        return Objects.equals(source, edge.source) && Objects.equals(target, edge.target) ||
-                Objects.equals(source, edge.target) && Objects.equals(target, edge.source);
     }
 
-    @Override
-    public int hashCode() {
-        return Objects.hash(source, target);
+    /**
+     * Compares the given ids by code point, which is the order of the {@code "C"} collation of the database. It
+     * differs from {@link String#compareTo(String)}, which compares UTF-16 code units, when a supplementary character
+     * is compared to a character between {@code U+E000} and {@code U+FFFF}.
+     *
+     * @param a the first id
+     * @param b the second id
+     * @return a negative integer, zero, or a positive integer as the first id is less than, equal to, or greater than
+     * the second id
+     */
+    static int compareByCodePoint(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            var x = a.codePointAt(i);
+            var y = b.codePointAt(j);
+            if (x != y) {
+                return Integer.compare(x, y);
+            }
+            i += Character.charCount(x);
+            j += Character.charCount(y);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
     }
 
     @Override
     public int compareTo(@NotNull Edge o) {
-        if (this.equals(o)) {
-            return 0;
-        }
-        var thisMin = source.compareTo(target) <= 0 ? source : target;
-        var thisMax = source.compareTo(target) > 0 ? source : target;
-
-        var otherMin = o.source.compareTo(o.target) <= 0 ? o.source : o.target;
-        var otherMax = o.source.compareTo(o.target) > 0 ? o.source : o.target;
-
-        int minComparison = thisMin.compareTo(otherMin);
-        return minComparison == 0 ? thisMax.compareTo(otherMax) : minComparison;
+        int sourceComparison = source.compareTo(o.source);
+        return sourceComparison == 0 ? target.compareTo(o.target) : sourceComparison;
     }
 }
@@ -8,10 +8,15 @@ import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
 
 /**
  * Exposes the RESTful endpoints to add, delete, and update edges.
+ * <p>
+ * By default, every endpoint returns the whole graph. If the {@code delta} query parameter is {@code true}, only the
+ * changes applied to the graph are returned as a {@link GraphDelta}.
  */
 @Path("/edges/{source}/{target}")
 @Produces(MediaType.APPLICATION_JSON)
@@ -35,15 +40,17 @@ public class EdgeResource {
      *
      * @param source the source
      * @param target the target
-     * @return the graph
+     * @param delta  whether only the changes applied to the graph must be returned
+     * @return the graph, or the changes applied to the graph
      */
     @POST
-    public Graph createEdge(@PathParam("source") String source, @PathParam("target") String target) {
+    public Response createEdge(@PathParam("source") String source,
+                               @PathParam("target") String target,
+                               @QueryParam("delta") boolean delta) {
         if (source.equals(target)) {
             throw new IllegalArgumentException("Source and target must be different");
         }
-        nodeService.createEdge(source, target);
-        return graphService.getGraph();
+        return respond(nodeService.createEdge(source, target), delta);
     }
 
     /**
@@ -51,13 +58,24 @@ public class EdgeResource {
      *
      * @param source the source
      * @param target the target
-     * @return the number of deleted edges
+     * @param delta  whether only the changes applied to the graph must be returned
+     * @return the graph, or the changes applied to the graph
      */
     @DELETE
-    public Graph deleteEdge(@PathParam("source") String source, @PathParam("target") String target) {
-        if (nodeService.deleteEdge(source, target) == 0) {
-            throw new NotFoundException();
-        }
-        return graphService.getGraph();
+    public Response deleteEdge(@PathParam("source") String source,
+                               @PathParam("target") String target,
+                               @QueryParam("delta") boolean delta) {
+        return respond(nodeService.deleteEdge(source, target).orElseThrow(NotFoundException::new), delta);
+    }
+
+    /**
+     * Returns either the given changes or the whole graph.
+     *
+     * @param changes the changes applied to the graph
+     * @param delta   whether only the changes applied to the graph must be returned
+     * @return the response
+     */
+    private Response respond(GraphDelta changes, boolean delta) {
+        return Response.ok(delta ? changes : graphService.getGraph()).build();
     }
 }
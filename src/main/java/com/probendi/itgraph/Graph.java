@@ -25,6 +25,17 @@ public class Graph {
     public Graph() {
     }
 
+    /**
+     * Creates a graph backed by the given sets, which are neither copied nor wrapped.
+     *
+     * @param nodes the nodes
+     * @param edges the edges
+     */
+    Graph(Set<Node> nodes, Set<Edge> edges) {
+        this.nodes = nodes;
+        this.edges = edges;
+    }
+
     /**
      * Returns the nodes.
      *
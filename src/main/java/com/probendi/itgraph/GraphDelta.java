@@ -0,0 +1,232 @@
+package com.probendi.itgraph;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The changes applied to the graph by a single write, together with the revision of the graph after the write.
+ *
+ * @author Daniele Di Salvo
+ * @since 1.0.0
+ */
+public class GraphDelta {
+
+    private long revision;
+    private boolean replaced;
+    private Set<Node> nodes = new TreeSet<>();
+    private Set<String> deletedNodes = new TreeSet<>();
+    private Set<Edge> edges = new TreeSet<>();
+    private Set<Edge> deletedEdges = new TreeSet<>();
+
+    /**
+     * Explicit empty constructor.
+     */
+    public GraphDelta() {
+    }
+
+    /**
+     * Returns the revision of the graph after the changes have been applied.
+     *
+     * @return the revision of the graph after the changes have been applied
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    /**
+     * Sets the revision of the graph after the changes have been applied.
+     *
+     * @param revision the revision to be set
+     * @return this delta
+     */
+    public GraphDelta setRevision(long revision) {
+        this.revision = revision;
+        return this;
+    }
+
+    /**
+     * Returns whether the whole graph has been replaced, in which case the other changes are not meaningful.
+     *
+     * @return whether the whole graph has been replaced
+     */
+    public boolean isReplaced() {
+        return replaced;
+    }
+
+    /**
+     * Sets whether the whole graph has been replaced.
+     *
+     * @param replaced whether the whole graph has been replaced
+     * @return this delta
+     */
+    public GraphDelta setReplaced(boolean replaced) {
+        this.replaced = replaced;
+        return this;
+    }
+
+    /**
+     * Returns the created or updated nodes.
+     *
+     * @return the created or updated nodes
+     */
+    public Set<Node> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Sets the created or updated nodes.
+     *
+     * @param nodes the nodes to be set
+     * @return this delta
+     */
+    public GraphDelta setNodes(@NotNull Set<Node> nodes) {
+        this.nodes = new TreeSet<>();
+        this.nodes.addAll(nodes);
+        return this;
+    }
+
+    /**
+     * Returns the IDs of the deleted nodes.
+     *
+     * @return the IDs of the deleted nodes
+     */
+    public Set<String> getDeletedNodes() {
+        return deletedNodes;
+    }
+
+    /**
+     * Sets the IDs of the deleted nodes.
+     *
+     * @param deletedNodes the IDs to be set
+     * @return this delta
+     */
+    public GraphDelta setDeletedNodes(@NotNull Set<String> deletedNodes) {
+        this.deletedNodes = new TreeSet<>();
+        this.deletedNodes.addAll(deletedNodes);
+        return this;
+    }
+
+    /**
+     * Returns the created edges.
+     *
+     * @return the created edges
+     */
+    public Set<Edge> getEdges() {
+        return edges;
+    }
+
+    /**
+     * Sets the created edges.
+     *
+     * @param edges the edges to be set
+     * @return this delta
+     */
+    public GraphDelta setEdges(@NotNull Set<Edge> edges) {
+        this.edges = new TreeSet<>();
+        this.edges.addAll(edges);
+        return this;
+    }
+
+    /**
+     * Returns the deleted edges.
+     *
+     * @return the deleted edges
+     */
+    public Set<Edge> getDeletedEdges() {
+        return deletedEdges;
+    }
+
+    /**
+     * Sets the deleted edges.
+     *
+     * @param deletedEdges the edges to be set
+     * @return this delta
+     */
+    public GraphDelta setDeletedEdges(@NotNull Set<Edge> deletedEdges) {
+        this.deletedEdges = new TreeSet<>();
+        this.deletedEdges.addAll(deletedEdges);
+        return this;
+    }
+
+    /**
+     * Adds the given node to the created or updated nodes.
+     *
+     * @param node the node to be added
+     * @return this delta
+     */
+    public GraphDelta addNode(@NotNull Node node) {
+        nodes.add(node);
+        return this;
+    }
+
+    /**
+     * Adds the given node ID to the deleted nodes.
+     *
+     * @param id the ID of the deleted node
+     * @return this delta
+     */
+    public GraphDelta addDeletedNode(@NotNull String id) {
+        deletedNodes.add(id);
+        return this;
+    }
+
+    /**
+     * Adds the given edge to the created edges.
+     *
+     * @param edge the edge to be added
+     * @return this delta
+     */
+    public GraphDelta addEdge(@NotNull Edge edge) {
+        edges.add(edge);
+        return this;
+    }
+
+    /**
+     * Adds the given edge to the deleted edges.
+     *
+     * @param edge the deleted edge
+     * @return this delta
+     */
+    public GraphDelta addDeletedEdge(@NotNull Edge edge) {
+        deletedEdges.add(edge);
+        return this;
+    }
+
+    /**
+     * Returns the number of changes, that is, the number of nodes and edges upserted, added or deleted.
+     *
+     * @return the number of changes
+     */
+    public int size() {
+        return nodes.size() + deletedNodes.size() + edges.size() + deletedEdges.size();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof GraphDelta delta)) return false;
+        return revision == delta.revision && replaced == delta.replaced && nodes.equals(delta.nodes) &&
+                deletedNodes.equals(delta.deletedNodes) && edges.equals(delta.edges) &&
+                deletedEdges.equals(delta.deletedEdges);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(revision, replaced, nodes, deletedNodes, edges, deletedEdges);
+    }
+
+    @Override
+    public String toString() {
+        return "GraphDelta{" +
+                "revision=" + revision +
+                ", replaced=" + replaced +
+                ", nodes=" + nodes +
+                ", deletedNodes=" + deletedNodes +
+                ", edges=" + edges +
+                ", deletedEdges=" + deletedEdges +
+                '}';
+    }
+}
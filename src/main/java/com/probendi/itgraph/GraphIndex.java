@@ -0,0 +1,212 @@
+package com.probendi.itgraph;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Set;
+
+/**
+ * A compact, read-only representation of a graph for traversals. Nodes are identified by dense integers assigned in
+ * ascending order of id, and the adjacency lists are stored in compressed sparse row format: the neighbours of node
+ * {@code n} are at positions {@code offset(n)} (inclusive) to {@code offset(n + 1)} (exclusive) of a single array of
+ * integers, sorted by id. Each edge takes eight bytes, regardless of the length of the ids of its nodes.
+ *
+ * @author Daniele Di Salvo
+ * @since 1.0.0
+ */
+public final class GraphIndex {
+
+    private static final NodeType[] TYPES = NodeType.values();
+
+    private final String[] ids;
+    private final byte[] types;
+    private final int[] offsets;
+    private final int[] neighbours;
+
+    /**
+     * Creates an index.
+     *
+     * @param ids        the ids of the nodes, sorted
+     * @param types      the ordinals of the types of the nodes
+     * @param offsets    the position of the first neighbour of each node, followed by the number of neighbours
+     * @param neighbours the neighbours of all nodes
+     */
+    private GraphIndex(String[] ids, byte[] types, int[] offsets, int[] neighbours) {
+        this.ids = ids;
+        this.types = types;
+        this.offsets = offsets;
+        this.neighbours = neighbours;
+    }
+
+    /**
+     * Creates the index of the given graph. Edges linking nodes that are not part of the graph are ignored.
+     *
+     * @param graph the graph
+     * @return the index of the given graph
+     */
+    public static GraphIndex of(@NotNull Graph graph) {
+        var size = graph.getNodes().size();
+        var ids = new String[size];
+        var types = new byte[size];
+        var i = 0;
+        for (var node : graph.getNodes()) {
+            ids[i] = node.getId();
+            types[i++] = (byte) node.getType().ordinal();
+        }
+        // the nodes of a graph are usually sorted already
+        if (!isSorted(ids)) {
+            var nodes = graph.getNodes().stream().sorted().toList();
+            for (i = 0; i < size; i++) {
+                ids[i] = nodes.get(i).getId();
+                types[i] = (byte) nodes.get(i).getType().ordinal();
+            }
+        }
+
+        var edges = graph.getEdges();
+        var sources = new int[edges.size()];
+        var targets = new int[edges.size()];
+        var offsets = new int[size + 1];
+        var count = 0;
+        for (var edge : edges) {
+            var source = Arrays.binarySearch(ids, edge.source());
+            var target = Arrays.binarySearch(ids, edge.target());
+            if (source < 0 || target < 0) {
+                continue;
+            }
+            sources[count] = source;
+            targets[count++] = target;
+            offsets[source + 1]++;
+            offsets[target + 1]++;
+        }
+        for (i = 0; i < size; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+
+        var neighbours = new int[offsets[size]];
+        var next = Arrays.copyOf(offsets, size);
+        for (i = 0; i < count; i++) {
+            neighbours[next[sources[i]]++] = targets[i];
+            neighbours[next[targets[i]]++] = sources[i];
+        }
+        for (i = 0; i < size; i++) {
+            Arrays.sort(neighbours, offsets[i], offsets[i + 1]);
+        }
+        return new GraphIndex(ids, types, offsets, neighbours);
+    }
+
+    /**
+     * Returns the number of nodes.
+     *
+     * @return the number of nodes
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Returns the node with the given id.
+     *
+     * @param id the id
+     * @return the node with the given id, or {@code -1} if the node does not exist
+     */
+    public int indexOf(String id) {
+        var node = Arrays.binarySearch(ids, id);
+        return node < 0 ? -1 : node;
+    }
+
+    /**
+     * Returns the id of the given node.
+     *
+     * @param node the node
+     * @return the id of the given node
+     */
+    public String id(int node) {
+        return ids[node];
+    }
+
+    /**
+     * Returns the type of the given node.
+     *
+     * @param node the node
+     * @return the type of the given node
+     */
+    public NodeType type(int node) {
+        return TYPES[types[node]];
+    }
+
+    /**
+     * Returns the position of the first neighbour of the given node. The position following the last neighbour of
+     * node {@code n} is {@code offset(n + 1)}.
+     *
+     * @param node the node, or the number of nodes
+     * @return the position of the first neighbour of the given node
+     */
+    public int offset(int node) {
+        return offsets[node];
+    }
+
+    /**
+     * Returns the neighbour at the given position.
+     *
+     * @param position the position
+     * @return the neighbour at the given position
+     */
+    public int neighbour(int position) {
+        return neighbours[position];
+    }
+
+    /**
+     * Returns the nodes reachable from the given root node in at most the given number of hops, passing only through
+     * nodes of the given types. The root node is always included, whatever its type.
+     *
+     * @param root  the root node
+     * @param depth the maximum number of hops
+     * @param types the types of the nodes that can be reached, or an empty set if all types can be reached
+     * @return the reachable nodes, sorted
+     */
+    public int[] neighbourhood(int root, int depth, @NotNull Set<NodeType> types) {
+        var visited = new BitSet();
+        var queue = new int[16];
+        var head = 0;
+        var tail = 0;
+
+        visited.set(root);
+        queue[tail++] = root;
+        for (int level = 0; level < depth && head < tail; level++) {
+            var end = tail;
+            while (head < end) {
+                var node = queue[head++];
+                for (int i = offsets[node]; i < offsets[node + 1]; i++) {
+                    var t = neighbours[i];
+                    if (!visited.get(t) && (types.isEmpty() || types.contains(type(t)))) {
+                        visited.set(t);
+                        if (tail == queue.length) {
+                            queue = Arrays.copyOf(queue, tail * 2);
+                        }
+                        queue[tail++] = t;
+                    }
+                }
+            }
+        }
+
+        var result = Arrays.copyOf(queue, tail);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Returns whether the given ids are in ascending order.
+     *
+     * @param ids the ids
+     * @return {@code true} if the given ids are in ascending order
+     */
+    private static boolean isSorted(String[] ids) {
+        for (int i = 1; i < ids.length; i++) {
+            if (ids[i - 1].compareTo(ids[i]) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
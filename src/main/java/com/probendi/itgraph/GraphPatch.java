@@ -0,0 +1,158 @@
+package com.probendi.itgraph;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A batch of changes to be applied to the graph in a single transaction. The changes are applied in the following
+ * order: created nodes, updated nodes, removed edges, added edges and deleted nodes.
+ * <p>
+ * The changes are kept in the order they are sent, duplicates included, so that they are validated before being
+ * sorted: sorting a node without an id or an edge without a source would fail before the patch is validated.
+ *
+ * @author Daniele Di Salvo
+ * @since 1.0.0
+ */
+public class GraphPatch {
+
+    private List<Node> createdNodes = new ArrayList<>();
+    private List<Node> updatedNodes = new ArrayList<>();
+    private List<String> deletedNodes = new ArrayList<>();
+    private List<Edge> addedEdges = new ArrayList<>();
+    private List<Edge> removedEdges = new ArrayList<>();
+
+    /**
+     * Explicit empty constructor.
+     */
+    public GraphPatch() {
+    }
+
+    /**
+     * Returns the nodes to be created.
+     *
+     * @return the nodes to be created
+     */
+    public List<Node> getCreatedNodes() {
+        return createdNodes;
+    }
+
+    /**
+     * Sets the nodes to be created.
+     *
+     * @param createdNodes the nodes to be set
+     * @return this patch
+     */
+    public GraphPatch setCreatedNodes(@NotNull Collection<Node> createdNodes) {
+        this.createdNodes = new ArrayList<>(createdNodes);
+        return this;
+    }
+
+    /**
+     * Returns the nodes to be updated.
+     *
+     * @return the nodes to be updated
+     */
+    public List<Node> getUpdatedNodes() {
+        return updatedNodes;
+    }
+
+    /**
+     * Sets the nodes to be updated.
+     *
+     * @param updatedNodes the nodes to be set
+     * @return this patch
+     */
+    public GraphPatch setUpdatedNodes(@NotNull Collection<Node> updatedNodes) {
+        this.updatedNodes = new ArrayList<>(updatedNodes);
+        return this;
+    }
+
+    /**
+     * Returns the IDs of the nodes to be deleted.
+     *
+     * @return the IDs of the nodes to be deleted
+     */
+    public List<String> getDeletedNodes() {
+        return deletedNodes;
+    }
+
+    /**
+     * Sets the IDs of the nodes to be deleted.
+     *
+     * @param deletedNodes the IDs to be set
+     * @return this patch
+     */
+    public GraphPatch setDeletedNodes(@NotNull Collection<String> deletedNodes) {
+        this.deletedNodes = new ArrayList<>(deletedNodes);
+        return this;
+    }
+
+    /**
+     * Returns the edges to be added.
+     *
+     * @return the edges to be added
+     */
+    public List<Edge> getAddedEdges() {
+        return addedEdges;
+    }
+
+    /**
+     * Sets the edges to be added.
+     *
+     * @param addedEdges the edges to be set
+     * @return this patch
+     */
+    public GraphPatch setAddedEdges(@NotNull Collection<Edge> addedEdges) {
+        this.addedEdges = new ArrayList<>(addedEdges);
+        return this;
+    }
+
+    /**
+     * Returns the edges to be removed.
+     *
+     * @return the edges to be removed
+     */
+    public List<Edge> getRemovedEdges() {
+        return removedEdges;
+    }
+
+    /**
+     * Sets the edges to be removed.
+     *
+     * @param removedEdges the edges to be set
+     * @return this patch
+     */
+    public GraphPatch setRemovedEdges(@NotNull Collection<Edge> removedEdges) {
+        this.removedEdges = new ArrayList<>(removedEdges);
+        return this;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof GraphPatch patch)) return false;
+        return createdNodes.equals(patch.createdNodes) && updatedNodes.equals(patch.updatedNodes) &&
+                deletedNodes.equals(patch.deletedNodes) && addedEdges.equals(patch.addedEdges) &&
+                removedEdges.equals(patch.removedEdges);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(createdNodes, updatedNodes, deletedNodes, addedEdges, removedEdges);
+    }
+
+    @Override
+    public String toString() {
+        return "GraphPatch{" +
+                "createdNodes=" + createdNodes +
+                ", updatedNodes=" + updatedNodes +
+                ", deletedNodes=" + deletedNodes +
+                ", addedEdges=" + addedEdges +
+                ", removedEdges=" + removedEdges +
+                '}';
+    }
+}
@@ -0,0 +1,190 @@
+package com.probendi.itgraph;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import jakarta.validation.constraints.NotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads a graph in the form {@code {"nodes":[...],"edges":[...]}} token by token, passing its nodes and edges to
+ * the given consumers in chunks of a fixed size. Hence, the memory needed to read a graph does not depend on its size.
+ * <p>
+ * Nodes and edges are passed in the order they appear in the document, hence the consumer of the edges must accept
+ * edges whose nodes have not been passed yet.
+ *
+ * @author Daniele Di Salvo
+ * @since 1.0.0
+ */
+public final class GraphReader {
+
+    private final JsonParser parser;
+    private final int chunkSize;
+    private final Consumer<List<Node>> nodes;
+    private final Consumer<List<Edge>> edges;
+
+    /**
+     * Creates a reader.
+     *
+     * @param parser    the parser of the document
+     * @param chunkSize the maximum number of nodes or edges passed to a consumer at once
+     * @param nodes     the consumer of the nodes
+     * @param edges     the consumer of the edges
+     */
+    public GraphReader(@NotNull JsonParser parser,
+                       int chunkSize,
+                       @NotNull Consumer<List<Node>> nodes,
+                       @NotNull Consumer<List<Edge>> edges) {
+        this.parser = parser;
+        this.chunkSize = chunkSize;
+        this.nodes = nodes;
+        this.edges = edges;
+    }
+
+    /**
+     * Reads the document.
+     *
+     * @throws IOException if the document cannot be read or is malformed
+     */
+    public void read() throws IOException {
+        expect(parser.nextToken(), JsonToken.START_OBJECT);
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var field = parser.currentName();
+            var token = parser.nextToken();
+            switch (field) {
+                case "nodes" -> readNodes(token);
+                case "edges" -> readEdges(token);
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Reads the array of nodes.
+     *
+     * @param token the current token
+     * @throws IOException if the document cannot be read or is malformed
+     */
+    private void readNodes(JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return;
+        }
+        expect(token, JsonToken.START_ARRAY);
+        var chunk = new ArrayList<Node>(chunkSize);
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            chunk.add(readNode());
+            if (chunk.size() == chunkSize) {
+                nodes.accept(chunk);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            nodes.accept(chunk);
+        }
+    }
+
+    /**
+     * Reads the array of edges.
+     *
+     * @param token the current token
+     * @throws IOException if the document cannot be read or is malformed
+     */
+    private void readEdges(JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return;
+        }
+        expect(token, JsonToken.START_ARRAY);
+        var chunk = new ArrayList<Edge>(chunkSize);
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            chunk.add(readEdge());
+            if (chunk.size() == chunkSize) {
+                edges.accept(chunk);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            edges.accept(chunk);
+        }
+    }
+
+    /**
+     * Reads a node.
+     *
+     * @return the node
+     * @throws IOException if the document cannot be read or is malformed
+     */
+    private Node readNode() throws IOException {
+        expect(parser.currentToken(), JsonToken.START_OBJECT);
+        var node = new Node();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "id" -> node.setId(parser.getValueAsString());
+                case "x" -> node.setX(parser.getValueAsInt());
+                case "y" -> node.setY(parser.getValueAsInt());
+                case "type" -> {
+                    var type = parser.getValueAsString();
+                    try {
+                        node.setType(type == null ? null : NodeType.valueOf(type));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Invalid type: " + type);
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        if (node.getId() == null || node.getId().isBlank()) {
+            throw new IllegalArgumentException("id must not be blank");
+        }
+        if (node.getType() == null) {
+            throw new IllegalArgumentException("type must not be null");
+        }
+        return node;
+    }
+
+    /**
+     * Reads an edge.
+     *
+     * @return the edge
+     * @throws IOException if the document cannot be read or is malformed
+     */
+    private Edge readEdge() throws IOException {
+        expect(parser.currentToken(), JsonToken.START_OBJECT);
+        String source = null;
+        String target = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "source" -> source = parser.getValueAsString();
+                case "target" -> target = parser.getValueAsString();
+                default -> parser.skipChildren();
+            }
+        }
+        if (source == null || source.isBlank()) {
+            throw new IllegalArgumentException("source must not be blank");
+        }
+        if (target == null || target.isBlank()) {
+            throw new IllegalArgumentException("target must not be blank");
+        }
+        return new Edge(source, target);
+    }
+
+    /**
+     * Checks that the given token is the expected one.
+     *
+     * @param actual   the actual token
+     * @param expected the expected token
+     */
+    private void expect(JsonToken actual, JsonToken expected) {
+        if (actual != expected) {
+            throw new IllegalArgumentException("Malformed graph: expected " + expected + " but found " + actual +
+                    " at " + parser.currentLocation());
+        }
+    }
+}
@@ -3,16 +3,38 @@ package com.probendi.itgraph;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
 import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.PATCH;
 import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 /**
  * Exposes the RESTful endpoints to upload and download a graph.
+ * <p>
+ * Read-only endpoints return an entity tag that changes whenever the graph changes, and answer with
+ * {@code 304 Not Modified} when the tag sent in the {@code If-None-Match} header is still current.
  *
  * @author Daniele Di Salvo
  * @since 1.0.0
@@ -41,37 +63,154 @@ public class GraphResource {
     }
 
     /**
-     * Returns the graph.
+     * Returns the graph, which is streamed one node and one edge at a time.
      *
+     * @param request the request
      * @return the graph
      */
     @GET
-    public Graph getGraph() {
-        return service.getGraph();
+    public Response getGraph(@Context Request request) {
+        var snapshot = service.getSnapshot();
+        var tag = new EntityTag(service.getTag(snapshot));
+        var notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) {
+            return notModified.build();
+        }
+        StreamingOutput output = os -> service.writeGraph(snapshot.getGraph(), os);
+        return Response.ok(output).tag(tag).build();
+    }
+
+    /**
+     * Streams the changes applied to the graph as server-sent events, see {@link ChangeFeed}. A client that has
+     * already loaded the graph passes its entity tag, either as the {@code since} query parameter or as the
+     * {@code Last-Event-ID} header when reconnecting, and is first sent the changes it has missed.
+     *
+     * @param since       the tag of the last revision seen by the client
+     * @param lastEventId the id of the last event received by the client, which takes precedence over {@code since}
+     * @param sse         the server-sent events context
+     * @param sink        the sink
+     */
+    @GET
+    @Path("/changes")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void getChanges(@QueryParam("since") String since,
+                           @HeaderParam(HttpHeaders.LAST_EVENT_ID_HEADER) String lastEventId,
+                           @Context Sse sse,
+                           @Context SseEventSink sink) {
+        service.subscribe(sse, sink, lastEventId != null ? lastEventId : since);
+    }
+
+    /**
+     * Returns the nodes within the given number of hops from the given root node, and the edges linking them. Only
+     * nodes of the given types are returned and traversed, with the exception of the root node.
+     *
+     * @param root    the root node
+     * @param depth   the maximum number of hops
+     * @param types   the types of the nodes that can be reached, either repeated or separated by commas; all types can
+     *                be reached if none is given
+     * @param request the request
+     * @return the neighbourhood of the given root node
+     */
+    @GET
+    @Path("/neighbourhood/{root}")
+    public Response getNeighbourhood(@PathParam("root") String root,
+                                     @QueryParam("depth") @DefaultValue("1") int depth,
+                                     @QueryParam("types") List<String> types,
+                                     @Context Request request) {
+        var snapshot = service.getSnapshot();
+        // an unknown root is not found, whatever the tag sent by the client
+        var neighbourhood = service.getNeighbourhood(snapshot, root, depth, types).orElseThrow(NotFoundException::new);
+        var tag = new EntityTag(service.getTag(snapshot));
+        var notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) {
+            return notModified.build();
+        }
+        StreamingOutput output = os -> service.writeGraph(neighbourhood, os);
+        return Response.ok(output).tag(tag).build();
     }
 
     /**
-     * Uploads a graph.
+     * Returns the nodes inside the given rectangle, borders included, and the edges with at least one endpoint inside
+     * the rectangle, so that a large graph can be loaded one tile at a time.
      *
-     * @param graph the graph to be uploaded
+     * @param minX    the minimum x coordinate
+     * @param minY    the minimum y coordinate
+     * @param maxX    the maximum x coordinate
+     * @param maxY    the maximum y coordinate
+     * @param request the request
+     * @return the nodes inside the given rectangle and the edges touching them
+     */
+    @GET
+    @Path("/viewport")
+    public Response getViewport(@QueryParam("minX") Integer minX,
+                                @QueryParam("minY") Integer minY,
+                                @QueryParam("maxX") Integer maxX,
+                                @QueryParam("maxY") Integer maxY,
+                                @Context Request request) {
+        var snapshot = service.getSnapshot();
+        var tag = new EntityTag(service.getTag(snapshot));
+        var notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) {
+            return notModified.build();
+        }
+        var viewport = service.getViewport(snapshot, minX, minY, maxX, maxY);
+        StreamingOutput output = os -> service.writeGraph(viewport, os);
+        return Response.ok(output).tag(tag).build();
+    }
+
+    /**
+     * Applies a batch of changes to the graph in a single transaction.
+     *
+     * @param patch the changes to be applied
+     * @return the changes applied to the graph
+     */
+    @PATCH
+    @Consumes(MediaType.APPLICATION_JSON)
+    public GraphDelta patchGraph(GraphPatch patch) {
+        return service.patchGraph(patch);
+    }
+
+    /**
+     * Uploads a graph. The request body is parsed and imported as it is read, hence it is never held in memory as a
+     * whole.
+     *
+     * @param json the graph to be uploaded
      * @return the graph
+     * @throws IOException if the request body cannot be read
      */
     @PUT
     @Consumes(MediaType.APPLICATION_JSON)
-    public Graph uploadGraph(Graph graph) {
-        return service.uploadGraph(graph);
+    public Graph uploadGraph(InputStream json) throws IOException {
+        service.uploadGraph(json);
+        return service.getGraph();
     }
 
     /**
      * Returns a simplified string representation of this graph starting from the given root node.
      *
-     * @param root the root node
+     * @param root    the root node
+     * @param request the request
      * @return a simplified string representation of this graph starting from the given root node
      */
     @GET
     @Path("/printout/{root}")
     @Produces(MediaType.TEXT_PLAIN)
-    public String stringifyGraph(@PathParam("root") String root) {
-        return service.stringifyGraph(root).orElseThrow(NotFoundException::new);
+    public Response stringifyGraph(@PathParam("root") String root, @Context Request request) {
+        var snapshot = service.getSnapshot();
+        // an unknown root is not found, whatever the tag sent by the client; the printout itself is only generated
+        // if it has been modified
+        snapshot.findNode(root).orElseThrow(NotFoundException::new);
+        var tag = new EntityTag(service.getTag(snapshot));
+        var notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) {
+            return notModified.build();
+        }
+        var printout = service.printout(snapshot, root).orElseThrow(NotFoundException::new);
+        StreamingOutput output = os -> {
+            var writer = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+            printout.writeTo(writer);
+            writer.flush();
+        };
+        return Response.ok(output).tag(tag).build();
     }
 }
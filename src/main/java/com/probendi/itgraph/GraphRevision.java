@@ -0,0 +1,55 @@
+package com.probendi.itgraph;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the revision of the graph. The revision is monotonically increasing and is bumped by every write.
+ * <p>
+ * Revisions start from zero every time the application starts, hence tags also include the start time of the
+ * application, so that a tag issued before a restart never matches a tag issued after it.
+ *
+ * @author Daniele Di Salvo
+ * @since 1.0.0
+ */
+@ApplicationScoped
+public class GraphRevision {
+
+    private final AtomicLong revision = new AtomicLong();
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+    /**
+     * Explicit empty constructor.
+     */
+    public GraphRevision() {
+    }
+
+    /**
+     * Returns the current revision.
+     *
+     * @return the current revision
+     */
+    public long current() {
+        return revision.get();
+    }
+
+    /**
+     * Bumps the revision.
+     *
+     * @return the new revision
+     */
+    public long next() {
+        return revision.incrementAndGet();
+    }
+
+    /**
+     * Returns the tag of the given revision, suitable for being used as an entity tag.
+     *
+     * @param revision the revision
+     * @return the tag of the given revision
+     */
+    public String tag(long revision) {
+        return epoch + "-" + revision;
+    }
+}
@@ -1,19 +1,22 @@
 package com.probendi.itgraph;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
 
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
-import java.util.concurrent.atomic.AtomicBoolean;
-
-import static com.probendi.itgraph.NodeType.LEXEME;
 
 /**
  * Handles the business logic of a {@link Graph}.
@@ -24,11 +27,24 @@ import static com.probendi.itgraph.NodeType.LEXEME;
 @ApplicationScoped
 public class GraphService {
 
-    private static final String PLACEHOLDER = "<REPLACE-ME>";
+    @Inject
+    ChangeFeed feed;
+
+    @Inject
+    ObjectMapper mapper;
 
     @Inject
     NodeService nodeService;
 
+    @Inject
+    GraphRevision revision;
+
+    @Inject
+    GraphStore store;
+
+    @Inject
+    PrintoutCache printoutCache;
+
     /**
      * Explicit empty constructor.
      */
@@ -47,153 +63,178 @@ public class GraphService {
     }
 
     /**
-     * Returns the graph.
+     * Returns the graph. The graph is served from the in-memory snapshot and must not be modified.
      *
      * @return the graph
      */
-    @Transactional
     public Graph getGraph() {
-        return nodeService.fetchGraph();
+        return store.current().getGraph();
     }
 
     /**
-     * Uploads a graph.
+     * Writes the given graph as a JSON document to the given stream, one node and one edge at a time.
      *
-     * @param graph the graph to be uploaded
-     * @return the graph
+     * @param graph  the graph
+     * @param output the stream, which is flushed but not closed
+     * @throws IOException if an I/O error occurs
      */
-    @Transactional
-    public Graph uploadGraph(@NotNull Graph graph) {
-        nodeService.deleteAllNodes();
-        graph.getNodes().forEach(node -> nodeService.createNode(node));
-        graph.getEdges().forEach(edge -> nodeService.findNode(edge.source()).orElseThrow()
-                .addEdge(nodeService.findNode(edge.target()).orElseThrow()));
-        return getGraph();
+    public void writeGraph(@NotNull Graph graph, @NotNull OutputStream output) throws IOException {
+        var generator = mapper.getFactory().createGenerator(output).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try (generator) {
+            new GraphWriter(generator).write(graph);
+        }
     }
 
     /**
-     * Returns a simplified string representation of this graph starting from the given root node.
+     * Returns the current snapshot of the graph.
      *
-     * @param root the root node
-     * @return a simplified string representation of this graph starting from the given root node
+     * @return the current snapshot of the graph
      */
-    @Transactional
-    public Optional<String> stringifyGraph(@NotBlank String root) {
-        var node = nodeService.findNode(root).orElse(null);
-        if (node == null) {
-            return Optional.empty();
-        }
-
-        var lines = new ArrayList<String>();
-        var counters = new ArrayList<Integer>();
-        counters.add(1);
-        stringify(node, new HashSet<>(), lines, counters, root);
+    public GraphSnapshot getSnapshot() {
+        return store.current();
+    }
 
-        int maxLength = 0;
-        for (var line : lines) {
-            var length = line.contains(PLACEHOLDER) ? line.indexOf(PLACEHOLDER) - 1 : line.length();
-            if (length > maxLength) {
-                maxLength = length;
-            }
+    /**
+     * Returns the subgraph of the given snapshot made of the nodes within the given number of hops from the given
+     * root node, and of the edges linking them.
+     *
+     * @param snapshot the snapshot
+     * @param root     the root node
+     * @param depth    the maximum number of hops
+     * @param types    the types of the nodes that can be reached, as names possibly separated by commas, or an empty
+     *                 list if all types can be reached
+     * @return the subgraph, or an empty optional if the root node does not exist
+     */
+    public Optional<Graph> getNeighbourhood(@NotNull GraphSnapshot snapshot,
+                                            @NotBlank String root,
+                                            int depth,
+                                            @NotNull List<String> types) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("depth must not be negative");
         }
-        maxLength += 3;
-
-        var sb = new StringBuilder();
-        var spaces = "";
-        for (var line : lines) {
-            if (!line.isEmpty() && Character.isDigit(line.charAt(0))) {
-                spaces = "";
-            }
-            if (line.contains(PLACEHOLDER)) {
-                if (line.startsWith(PLACEHOLDER)) {
-                    line = line.replace(PLACEHOLDER, spaces);
-                } else {
-                    var c = maxLength - line.indexOf(PLACEHOLDER);
-                    var replacement = " " + String.valueOf('.').repeat(c > 0 ? c : 3) + " ";
-                    line = line.replace(PLACEHOLDER, replacement);
-                    spaces = String.valueOf(' ').repeat(line.indexOf(replacement)) + replacement;
+        var nodeTypes = EnumSet.noneOf(NodeType.class);
+        for (var type : types) {
+            for (var name : type.split(",")) {
+                if (name.isBlank()) {
+                    continue;
+                }
+                try {
+                    nodeTypes.add(NodeType.valueOf(name.trim().toUpperCase()));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Invalid type: " + name.trim());
                 }
             }
-            sb.append(line).append("\n");
         }
-        return Optional.of(sb.toString());
+        return snapshot.getNeighbourhood(root, depth, nodeTypes);
     }
 
     /**
-     * Builds a simplified string representation of this node using the Depth-First Search algorithm.
+     * Returns the subgraph of the given snapshot made of the nodes inside the given rectangle and of the edges
+     * touching them.
      *
-     * @param node         the node
-     * @param visitedNodes the nodes that have already been visited
-     * @param lines        the list used to build the simplified string representation of this graph
-     * @param counters     keeps track of the depth level of this node. For example, if the depth is represented as
-     *                     {@code }, the corresponding values in counters would be 1, 3, and 2
-     * @param root         the root node
+     * @param snapshot the snapshot
+     * @param minX     the minimum x coordinate
+     * @param minY     the minimum y coordinate
+     * @param maxX     the maximum x coordinate
+     * @param maxY     the maximum y coordinate
+     * @return the subgraph
      */
-    private void stringify(Node node,
-                           Set<String> visitedNodes,
-                           List<String> lines,
-                           List<Integer> counters,
-                           String root) {
-        if (visitedNodes.contains(node.getId())) {
-            return;
+    public Graph getViewport(@NotNull GraphSnapshot snapshot, Integer minX, Integer minY, Integer maxX, Integer maxY) {
+        if (minX == null || minY == null || maxX == null || maxY == null) {
+            throw new IllegalArgumentException("minX, minY, maxX and maxY must not be null");
         }
-        visitedNodes.add(node.getId());
-
-        // handle lexemes
-        if (node.getType() == LEXEME) {
-            lines.add(formatCounters(counters) + " " + node.getId());
-
-            // add a dotted line if this lexeme is not the root node and is linked to another lexeme
-            if (!root.equals(node.getId())) {
-                final var first = new AtomicBoolean(true);
-                nodeService.fetchLinkedLexemes(node.getId(), root).forEach(t -> {
-                    if (first.get()) {
-                        lines.set(lines.size() - 1, lines.getLast() + PLACEHOLDER + t);
-                        first.set(false);
-                    } else {
-                        lines.add(PLACEHOLDER + t);
-                    }
-                });
-            }
+        if (minX > maxX || minY > maxY) {
+            throw new IllegalArgumentException("minX and minY must not be greater than maxX and maxY");
         }
+        return snapshot.getViewport(minX, minY, maxX, maxY);
+    }
 
-        // a node always has at least one edge
-        for (var edge : node.getEdges()) {
-            if (!visitedNodes.contains(edge.getId())) {
-                counters.add(0);
-                break;
-            }
-        }
+    /**
+     * Returns the tag of the given snapshot, which changes whenever the graph changes.
+     *
+     * @param snapshot the snapshot
+     * @return the tag of the given snapshot
+     */
+    public String getTag(@NotNull GraphSnapshot snapshot) {
+        return revision.tag(snapshot.getRevision());
+    }
 
-        if (node.getType() != LEXEME) {
-            lines.add(formatCounters(counters) + " *");
-        }
+    /**
+     * Applies a batch of changes to the graph in a single transaction.
+     *
+     * @param patch the changes to be applied
+     * @return the changes applied to the graph
+     */
+    public GraphDelta patchGraph(@NotNull GraphPatch patch) {
+        return nodeService.applyPatch(patch);
+    }
 
-        // handle divisions and oppositions
-        node.getEdges().stream().sorted().forEach(t -> {
-            if ((root.equals(node.getId()) || node.getType() != LEXEME || t.getType() != LEXEME) &&
-                    !visitedNodes.contains(t.getId())) {
+    /**
+     * Subscribes the given sink to the changes applied to the graph after the given revision.
+     *
+     * @param sse   the server-sent events context
+     * @param sink  the sink
+     * @param since the tag of the last revision seen by the client, or {@code null} to receive the next changes only
+     */
+    public void subscribe(@NotNull Sse sse, @NotNull SseEventSink sink, String since) {
+        feed.subscribe(sse, sink, since);
+    }
 
-                var n = counters.size() - 1;
-                counters.set(n, counters.get(n) + 1);
-                List<Integer> clonedList = new ArrayList<>(counters);
-                stringify(t, visitedNodes, lines, counters, root);
-                counters.clear();
-                counters.addAll(clonedList);
+    /**
+     * Uploads a graph read from the given JSON document, which is parsed token by token and imported in chunks, so
+     * that graphs of any size can be uploaded within a constant amount of memory.
+     * <p>
+     * The graph is staged and replaces the current graph only once it has been read completely and validated, hence
+     * the current graph is served until this transaction is committed, and left unchanged if the upload fails.
+     *
+     * @param json the JSON document
+     * @throws IOException if the document cannot be read
+     */
+    @Transactional(rollbackOn = IOException.class)
+    public void uploadGraph(@NotNull InputStream json) throws IOException {
+        nodeService.startImport();
+        try (var parser = mapper.getFactory().createParser(json)) {
+            new GraphReader(parser, NodeRepository.BATCH_SIZE, nodeService::importNodes, nodeService::importEdges)
+                    .read();
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed graph: " + e.getOriginalMessage());
+        }
+        nodeService.finishImport();
+    }
 
-            }
-        });
+    /**
+     * Returns a simplified string representation of this graph starting from the given root node.
+     *
+     * @param root the root node
+     * @return a simplified string representation of this graph starting from the given root node
+     */
+    public Optional<String> stringifyGraph(@NotBlank String root) {
+        return printout(store.current(), root).map(Printout::toString);
     }
 
     /**
-     * Formats the given counters. For example, if counters are 1, 3, and, this method returns {@code 1.3.2}
+     * Returns the printout of the given snapshot starting from the given root node. The printout is generated
+     * entirely in memory and cached, unless it is too large to be cached: it is then generated while it is written.
      *
-     * @param counters the counters
-     * @return the formatted counters
+     * @param snapshot the snapshot
+     * @param root     the root node
+     * @return the printout, or an empty optional if the root node does not exist
      */
-    private String formatCounters(List<Integer> counters) {
-        StringBuilder sb = new StringBuilder();
-        counters.forEach(i -> sb.append('.').append(i));
-        return sb.substring(1);
+    public Optional<Printout> printout(@NotNull GraphSnapshot snapshot, @NotBlank String root) {
+        var cached = printoutCache.get(root, snapshot.getRevision());
+        if (cached != null) {
+            return Optional.of(Printout.ofText(cached));
+        }
+
+        var printout = Printout.of(snapshot, root).orElse(null);
+        if (printout == null) {
+            return Optional.empty();
+        }
+        if (printout.size() > printoutCache.getMaxSize()) {
+            return Optional.of(printout);
+        }
+        var text = printout.toString();
+        printoutCache.put(root, snapshot.getRevision(), text);
+        return Optional.of(Printout.ofText(text));
     }
 }
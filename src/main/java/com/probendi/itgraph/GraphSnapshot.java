@@ -0,0 +1,251 @@
+package com.probendi.itgraph;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * An immutable, versioned snapshot of the graph, which can be shared by any number of readers without locking.
+ * <p>
+ * Changes are applied with copy-on-write, but nodes and edges are held in {@link ChunkedSet}s, so that a new snapshot
+ * shares with the previous one every chunk of nodes and edges that has not changed, and the indexes too if only the
+ * positions of some nodes have changed. Hence, the cost of a change does not grow linearly with the size of the graph.
+ *
+ * @author Daniele Di Salvo
+ * @since 1.0.0
+ */
+public final class GraphSnapshot {
+
+    private final long revision;
+    private final ChunkedSet<Node> nodes;
+    private final ChunkedSet<Edge> edges;
+    private final Graph graph;
+    private volatile GraphIndex index;
+    private volatile SpatialIndex spatialIndex;
+
+    /**
+     * Creates a snapshot.
+     *
+     * @param revision the revision
+     * @param nodes    the nodes
+     * @param edges    the edges
+     */
+    private GraphSnapshot(long revision, ChunkedSet<Node> nodes, ChunkedSet<Edge> edges) {
+        this.revision = revision;
+        this.nodes = nodes;
+        this.edges = edges;
+        this.graph = new Graph(nodes, edges);
+    }
+
+    /**
+     * Creates a snapshot of the given graph.
+     *
+     * @param revision the revision
+     * @param graph    the graph
+     * @return a snapshot of the given graph
+     */
+    public static GraphSnapshot of(long revision, @NotNull Graph graph) {
+        var nodes = graph.getNodes().stream().map(GraphSnapshot::copy).toList();
+        return new GraphSnapshot(revision, ChunkedSet.of(nodes), ChunkedSet.of(graph.getEdges()));
+    }
+
+    /**
+     * Creates a snapshot that takes ownership of the nodes of the given graph, which must not be managed by the
+     * persistence context nor be modified afterwards.
+     *
+     * @param revision the revision
+     * @param graph    the graph
+     * @return a snapshot of the given graph
+     */
+    public static GraphSnapshot wrap(long revision, @NotNull Graph graph) {
+        return new GraphSnapshot(revision, ChunkedSet.of(graph.getNodes()), ChunkedSet.of(graph.getEdges()));
+    }
+
+    /**
+     * Returns the revision.
+     *
+     * @return the revision
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    /**
+     * Returns a read-only view of the graph.
+     *
+     * @return a read-only view of the graph
+     */
+    public Graph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns the node with the given id.
+     *
+     * @param id the id
+     * @return the node with the given id
+     */
+    public Optional<Node> findNode(String id) {
+        return Optional.ofNullable(id == null ? null : nodes.find(new Node().setId(id)));
+    }
+
+    /**
+     * Returns the subgraph made of the nodes reachable from the given root node in at most the given number of hops,
+     * passing only through nodes of the given types, and of the edges linking them.
+     *
+     * @param root  the root node
+     * @param depth the maximum number of hops
+     * @param types the types of the nodes that can be reached, or an empty set if all types can be reached
+     * @return the subgraph, or an empty optional if the root node does not exist
+     */
+    public Optional<Graph> getNeighbourhood(String root, int depth, @NotNull Set<NodeType> types) {
+        var index = getIndex();
+        var node = index.indexOf(root);
+        if (node < 0) {
+            return Optional.empty();
+        }
+
+        var reached = index.neighbourhood(node, depth, types);
+        var subgraph = new Graph();
+        for (var n : reached) {
+            subgraph.addNode(findNode(index.id(n)).orElseThrow());
+            for (int i = index.offset(n); i < index.offset(n + 1); i++) {
+                var t = index.neighbour(i);
+                // each edge is added once, from its lesser endpoint
+                if (t > n && Arrays.binarySearch(reached, t) >= 0) {
+                    subgraph.addEdge(new Edge(index.id(n), index.id(t)));
+                }
+            }
+        }
+        return Optional.of(subgraph);
+    }
+
+    /**
+     * Returns the subgraph made of the nodes inside the given rectangle, borders included, and of the edges with at
+     * least one endpoint inside the rectangle. Hence, some edges may link nodes that are not part of the subgraph.
+     *
+     * @param minX the minimum x coordinate
+     * @param minY the minimum y coordinate
+     * @param maxX the maximum x coordinate
+     * @param maxY the maximum y coordinate
+     * @return the subgraph
+     */
+    public Graph getViewport(int minX, int minY, int maxX, int maxY) {
+        var index = getIndex();
+        var inside = getSpatialIndex().range(minX, minY, maxX, maxY);
+        var subgraph = new Graph();
+        for (var n : inside) {
+            subgraph.addNode(findNode(index.id(n)).orElseThrow());
+            for (int i = index.offset(n); i < index.offset(n + 1); i++) {
+                var t = index.neighbour(i);
+                // an edge with both endpoints inside is added once, from its lesser endpoint
+                if (t > n || Arrays.binarySearch(inside, t) < 0) {
+                    subgraph.addEdge(new Edge(index.id(n), index.id(t)));
+                }
+            }
+        }
+        return subgraph;
+    }
+
+    /**
+     * Returns the index of this snapshot, building it on first use.
+     *
+     * @return the index of this snapshot
+     */
+    public GraphIndex getIndex() {
+        var result = index;
+        if (result == null) {
+            result = GraphIndex.of(graph);
+            index = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns a new snapshot with the given changes applied. This snapshot is not modified. The changes must include
+     * the edges of the deleted nodes, as the changes published by {@link NodeService} do.
+     *
+     * @param delta    the changes to be applied
+     * @param revision the revision of the new snapshot
+     * @return a new snapshot with the given changes applied
+     */
+    public GraphSnapshot apply(@NotNull GraphDelta delta, long revision) {
+        var updated = new ArrayList<Node>(delta.getNodes().size());
+        delta.getNodes().forEach(node -> updated.add(copy(node)));
+        var deleted = new ArrayList<Node>(delta.getDeletedNodes().size());
+        delta.getDeletedNodes().forEach(id -> deleted.add(new Node().setId(id)));
+
+        var moved = isMove(delta);
+        var result = new GraphSnapshot(revision, nodes.with(deleted, updated),
+                edges.with(delta.getDeletedEdges(), delta.getEdges()));
+        if (moved) {
+            // neither the nodes, nor their types, nor the edges have changed
+            var current = index;
+            var spatial = spatialIndex;
+            result.index = current;
+            if (current != null && spatial != null) {
+                for (var node : updated) {
+                    spatial = spatial.move(current.indexOf(node.getId()), node.getX(), node.getY());
+                }
+                // searches check the moved nodes one by one, hence the tree is rebuilt when too many have moved
+                result.spatialIndex = spatial.moved() <= spatial.size() / 16 + 64 ? spatial : null;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether the given changes only move existing nodes.
+     *
+     * @param delta the changes
+     * @return {@code true} if the given changes only move existing nodes
+     */
+    private boolean isMove(GraphDelta delta) {
+        if (!delta.getDeletedNodes().isEmpty() || !delta.getEdges().isEmpty() || !delta.getDeletedEdges().isEmpty()) {
+            return false;
+        }
+        for (var node : delta.getNodes()) {
+            var current = findNode(node.getId());
+            if (current.isEmpty() || current.get().getType() != node.getType()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the spatial index of the nodes of this snapshot, building it on first use. The points of the spatial
+     * index are the nodes of {@link #getIndex()}.
+     *
+     * @return the spatial index of the nodes of this snapshot
+     */
+    private SpatialIndex getSpatialIndex() {
+        var result = spatialIndex;
+        if (result == null) {
+            // the nodes are sorted by id, as the nodes of the index are
+            var xs = new int[nodes.size()];
+            var ys = new int[nodes.size()];
+            var i = 0;
+            for (var node : nodes) {
+                xs[i] = node.getX();
+                ys[i++] = node.getY();
+            }
+            result = SpatialIndex.of(xs, ys);
+            spatialIndex = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns a detached copy of the given node, without its edges.
+     *
+     * @param node the node
+     * @return a detached copy of the given node
+     */
+    private static Node copy(Node node) {
+        return new Node(node.getId(), node.getX(), node.getY(), node.getType());
+    }
+}
@@ -0,0 +1,238 @@
+package com.probendi.itgraph;
+
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Holds the authoritative, in-memory {@link GraphSnapshot} of the graph, which is loaded from the database at startup
+ * and kept up to date by the {@link GraphDelta}s published by every successfully committed write.
+ * <p>
+ * Changes must be applied in the order they are committed, otherwise an older change could overwrite a newer one.
+ * Hence, a transaction that publishes changes takes the commit lock right before being committed, and releases it
+ * only once its changes have been applied, so that such transactions are committed and applied one at a time.
+ *
+ * @author Daniele Di Salvo
+ * @since 1.0.0
+ */
+@ApplicationScoped
+public class GraphStore {
+
+    @Inject
+    ChangeFeed feed;
+
+    @Inject
+    GraphRevision revision;
+
+    @Inject
+    NodeService nodeService;
+
+    @Inject
+    PositionBuffer positions;
+
+    @Inject
+    TransactionSynchronizationRegistry registry;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Object loader = new Object();
+    private volatile GraphSnapshot snapshot;
+    private List<GraphDelta> missed;
+
+    /**
+     * Explicit empty constructor.
+     */
+    public GraphStore() {
+    }
+
+    /**
+     * Returns the current snapshot, loading it from the database if needed.
+     *
+     * @return the current snapshot
+     */
+    public GraphSnapshot current() {
+        var current = snapshot;
+        return current != null ? current : load();
+    }
+
+    /**
+     * Discards the current snapshot, so that it is reloaded from the database when it is next needed. This method
+     * must be invoked whenever the database is modified without publishing a {@link GraphDelta}.
+     */
+    public void invalidate() {
+        exclusively(current -> {
+            apply(new GraphDelta().setReplaced(true));
+            return null;
+        });
+    }
+
+    /**
+     * Runs the given action while no change is being committed or applied.
+     *
+     * @param action the action, which is passed the current snapshot, or {@code null} if it has not been loaded
+     * @param <T>    the type of the result
+     * @return the result of the action
+     */
+    <T> T exclusively(Function<GraphSnapshot, T> action) {
+        lock.lock();
+        try {
+            return action.apply(snapshot);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies the given changes to the current snapshot, and passes them on to the {@link ChangeFeed}, once the
+     * transaction that produced them has been committed, or at once if there is no transaction.
+     *
+     * @param delta the changes
+     */
+    void onChange(@Observes GraphDelta delta) {
+        switch (registry.getTransactionStatus()) {
+            case Status.STATUS_NO_TRANSACTION -> exclusively(current -> {
+                apply(delta);
+                return null;
+            });
+            case Status.STATUS_ACTIVE -> registry.registerInterposedSynchronization(new Synchronization() {
+
+                private boolean locked;
+
+                @Override
+                public void beforeCompletion() {
+                    lock.lock();
+                    locked = true;
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (!locked) {
+                        return;
+                    }
+                    try {
+                        if (status == Status.STATUS_COMMITTED) {
+                            apply(delta);
+                        }
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            });
+            default -> {
+                // the transaction is being rolled back, hence the changes are never committed
+            }
+        }
+    }
+
+    /**
+     * Loads the snapshot at startup.
+     *
+     * @param event the startup event
+     */
+    void onStart(@Observes StartupEvent event) {
+        current();
+    }
+
+    /**
+     * Stamps the given changes with a new revision and applies them. The commit lock must be held.
+     *
+     * @param delta the changes
+     */
+    private void apply(GraphDelta delta) {
+        delta.setRevision(revision.next());
+        // the changes are published before the snapshot carrying their revision is visible, so that a client that has
+        // read the snapshot and then subscribes with its tag finds them
+        positions.discard(delta);
+        feed.publish(delta);
+        if (delta.isReplaced()) {
+            snapshot = null;
+            // a snapshot being loaded may predate the replacement
+            missed = null;
+        } else {
+            if (snapshot != null) {
+                snapshot = snapshot.apply(delta, delta.getRevision());
+            }
+            if (missed != null) {
+                missed.add(delta);
+            }
+        }
+    }
+
+    /**
+     * Loads the snapshot from the database, including the positions that have not been written yet.
+     * <p>
+     * The database is read without holding the commit lock, which would otherwise wait for the transactions holding
+     * locks on the tables. The changes applied in the meantime are collected and then applied to the loaded graph:
+     * since each change overwrites whatever it touches, applying a change that the loaded graph already reflects has
+     * no effect. If the graph is replaced in the meantime, it is loaded again.
+     *
+     * @return the loaded snapshot
+     */
+    private GraphSnapshot load() {
+        synchronized (loader) {
+            while (true) {
+                List<Node> unwritten;
+                lock.lock();
+                try {
+                    if (snapshot != null) {
+                        return snapshot;
+                    }
+                    missed = new ArrayList<>();
+                    unwritten = positions.unwritten();
+                } finally {
+                    lock.unlock();
+                }
+
+                Graph graph = null;
+                try {
+                    graph = nodeService.fetchGraph();
+                } finally {
+                    lock.lock();
+                    try {
+                        if (graph != null && missed != null) {
+                            overlay(graph, unwritten);
+                            var loaded = GraphSnapshot.wrap(revision.current(), graph);
+                            for (var delta : missed) {
+                                loaded = loaded.apply(delta, delta.getRevision());
+                            }
+                            snapshot = loaded;
+                        }
+                        missed = null;
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Overwrites the positions of the nodes of the given graph with the given positions.
+     *
+     * @param graph     the graph
+     * @param positions the positions, as nodes
+     */
+    private static void overlay(Graph graph, List<Node> positions) {
+        if (positions.isEmpty()) {
+            return;
+        }
+        var byId = new HashMap<String, Node>();
+        positions.forEach(node -> byId.put(node.getId(), node));
+        for (var node : graph.getNodes()) {
+            var position = byId.get(node.getId());
+            if (position != null) {
+                node.setX(position.getX());
+                node.setY(position.getY());
+            }
+        }
+    }
+}
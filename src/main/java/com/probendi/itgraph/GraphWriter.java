@@ -0,0 +1,80 @@
+package com.probendi.itgraph;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import jakarta.validation.constraints.NotNull;
+
+import java.io.IOException;
+
+/**
+ * Writes a graph in the form {@code {"nodes":[...],"edges":[...]}} token by token, so that each node and edge is
+ * written as soon as it is visited and no intermediate representation of the graph is built.
+ *
+ * @author Daniele Di Salvo
+ * @since 1.0.0
+ */
+public final class GraphWriter {
+
+    private final JsonGenerator generator;
+
+    /**
+     * Creates a writer.
+     *
+     * @param generator the generator the graph is written to
+     */
+    public GraphWriter(@NotNull JsonGenerator generator) {
+        this.generator = generator;
+    }
+
+    /**
+     * Writes the given graph. The generator is flushed but not closed.
+     *
+     * @param graph the graph
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(@NotNull Graph graph) throws IOException {
+        generator.writeStartObject();
+
+        generator.writeArrayFieldStart("nodes");
+        for (var node : graph.getNodes()) {
+            writeNode(node);
+        }
+        generator.writeEndArray();
+
+        generator.writeArrayFieldStart("edges");
+        for (var edge : graph.getEdges()) {
+            writeEdge(edge);
+        }
+        generator.writeEndArray();
+
+        generator.writeEndObject();
+        generator.flush();
+    }
+
+    /**
+     * Writes the given node.
+     *
+     * @param node the node
+     * @throws IOException if an I/O error occurs
+     */
+    private void writeNode(Node node) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("id", node.getId());
+        generator.writeNumberField("x", node.getX());
+        generator.writeNumberField("y", node.getY());
+        generator.writeStringField("type", node.getType().name());
+        generator.writeEndObject();
+    }
+
+    /**
+     * Writes the given edge.
+     *
+     * @param edge the edge
+     * @throws IOException if an I/O error occurs
+     */
+    private void writeEdge(Edge edge) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("source", edge.source());
+        generator.writeStringField("target", edge.target());
+        generator.writeEndObject();
+    }
+}
@@ -5,20 +5,27 @@ import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
-import java.util.TreeSet;
 
 /**
  * A graph's node.
+ * <p>
+ * Nodes and their edges are kept in the second-level cache, so that looking up a node by id seldom hits the database.
+ * Whoever changes the {@code nodes} or {@code edges} tables without going through the persistence context must evict
+ * the changed data from the cache.
  *
  * @author Daniele Di Salvo
  * @since 1.0.0
  */
 @Entity
 @Table(name = "nodes")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @JsonPropertyOrder({"id", "x", "y", "type"})
 @SuppressWarnings("unused")
 public class Node implements Comparable<Node> {
@@ -144,9 +151,10 @@ public class Node implements Comparable<Node> {
     }
 
     /**
-     * Returns the edges.
+     * Returns the nodes linked to this node whose id is greater than the id of this node. Since edges are stored once,
+     * in canonical order, an edge belongs to the collection of the node with the lesser id only.
      *
-     * @return the edges
+     * @return the nodes linked to this node whose id is greater than the id of this node
      */
     public Set<Node> getEdges() {
         return edges;
@@ -165,14 +173,17 @@ public class Node implements Comparable<Node> {
     }
 
     /**
-     * Adds an edge to the given target node.
+     * Adds an edge to the given target node. The edge is added to the collection of the node with the lesser id.
      *
      * @param node the target node
      * @return this node
      */
     public Node addEdge(Node node) {
-        edges.add(node);
-        node.getEdges().add(this);
+        if (Edge.compareByCodePoint(id, node.getId()) < 0) {
+            edges.add(node);
+        } else {
+            node.getEdges().add(this);
+        }
         return this;
     }
 
@@ -217,14 +228,6 @@ public class Node implements Comparable<Node> {
     public int compareTo(@NotNull Node o) {
         return id.compareTo(o.id);
     }
-
-    /**
-     * Removes the edges of the node that is going to be removed.
-     */
-    @PreRemove
-    private void removeEdges() {
-        new TreeSet<>(edges).forEach(this::removeEdge);
-    }
 }
 
 
@@ -1,11 +1,26 @@
 package com.probendi.itgraph;
 
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
-import jakarta.transaction.Transactional;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.hibernate.Cache;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.jpa.HibernateHints;
 
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Provides methods for executing CRUD operations on a {@link Node}.
@@ -16,19 +31,97 @@ import java.util.List;
 @ApplicationScoped
 public class NodeRepository {
 
-    private static final String FETCH_GRAPH_QUERY =
-            "SELECT n.id, n.x, n.y, n.type, e.target FROM nodes AS n LEFT JOIN edges AS e ON n.id = e.source";
+    private static final String FETCH_NODES_QUERY = "SELECT n.id, n.x, n.y, n.type FROM nodes AS n";
 
-    private static final String FETCH_LEXEME_RELATED_EDGES_QUERY =
-            "(SELECT e.source FROM edges e INNER JOIN nodes n ON e.source = n.id " +
-            "WHERE e.target = :node AND n.type = 'LEXEME' AND e.source != :root) " +
+    private static final String FETCH_EDGES_QUERY = "SELECT e.source, e.target FROM edges AS e";
+
+    private static final String REPEATABLE_READ_STATEMENT =
+            "SET TRANSACTION ISOLATION LEVEL REPEATABLE READ, READ ONLY";
+
+    private static final String FETCH_NODE_EDGES_QUERY =
+            "SELECT e.source, e.target FROM edges AS e WHERE e.source IN (:ids) " +
             "UNION " +
-            "(SELECT e.target FROM edges e INNER JOIN nodes n ON e.target = n.id " +
-            "WHERE e.source = :node AND n.type = 'LEXEME' AND e.target != :root)";
+            "SELECT e.source, e.target FROM edges AS e WHERE e.target IN (:ids)";
+
+    private static final String FIND_NODES_QUERY = "SELECT n.id FROM nodes AS n WHERE n.id IN (:ids)";
+
+    private static final String LOCK_NODES_QUERY =
+            "SELECT n.id FROM nodes AS n WHERE n.id IN (:ids) ORDER BY n.id COLLATE \"C\" FOR UPDATE";
+
+    private static final String CREATE_EDGE_STATEMENT =
+            "INSERT INTO edges (source, target) " +
+            "SELECT s.id, t.id FROM nodes AS s, nodes AS t WHERE s.id = ? AND t.id = ? " +
+            "ON CONFLICT DO NOTHING";
+
+    private static final String DELETE_EDGE_STATEMENT = "DELETE FROM edges WHERE source = ? AND target = ?";
+
+    private static final String DELETE_NODE_EDGES_STATEMENT = "DELETE FROM edges WHERE source = ? OR target = ?";
+
+    private static final String DELETE_NODE_EDGES_RETURNING_STATEMENT =
+            "DELETE FROM edges WHERE source = ? OR target = ? RETURNING source, target";
+
+    private static final String DELETE_NODE_STATEMENT = "DELETE FROM nodes WHERE id = ?";
+
+    private static final String INSERT_EDGE_STATEMENT =
+            "INSERT INTO edges (source, target) VALUES (?, ?) ON CONFLICT DO NOTHING";
+
+    private static final String INSERT_NODE_STATEMENT =
+            "INSERT INTO nodes (id, x, y, type) VALUES (?, ?, ?, ?)";
+
+    private static final String CREATE_STAGED_NODES_STATEMENT =
+            "CREATE TEMPORARY TABLE staged_nodes (LIKE nodes INCLUDING CONSTRAINTS INCLUDING INDEXES) ON COMMIT DROP";
+
+    private static final String CREATE_STAGED_EDGES_STATEMENT =
+            "CREATE TEMPORARY TABLE staged_edges (LIKE edges INCLUDING CONSTRAINTS INCLUDING INDEXES) ON COMMIT DROP";
+
+    private static final String STAGE_EDGE_STATEMENT =
+            "INSERT INTO staged_edges (source, target) VALUES (?, ?) ON CONFLICT DO NOTHING";
+
+    private static final String STAGE_NODE_STATEMENT =
+            "INSERT INTO staged_nodes (id, x, y, type) VALUES (?, ?, ?, ?) ON CONFLICT DO NOTHING";
+
+    private static final String MISSING_STAGED_SOURCE_QUERY =
+            "SELECT EXISTS (SELECT 1 FROM staged_edges AS e " +
+            "WHERE NOT EXISTS (SELECT 1 FROM staged_nodes AS n WHERE n.id = e.source))";
+
+    private static final String MISSING_STAGED_TARGET_QUERY =
+            "SELECT EXISTS (SELECT 1 FROM staged_edges AS e " +
+            "WHERE NOT EXISTS (SELECT 1 FROM staged_nodes AS n WHERE n.id = e.target))";
+
+    private static final String TRUNCATE_STATEMENT = "TRUNCATE edges, nodes";
+
+    private static final String COPY_STAGED_NODES_STATEMENT =
+            "INSERT INTO nodes (id, x, y, type) SELECT n.id, n.x, n.y, n.type FROM staged_nodes AS n";
+
+    private static final String COPY_STAGED_EDGES_STATEMENT =
+            "INSERT INTO edges (source, target) SELECT e.source, e.target FROM staged_edges AS e";
+
+    private static final String UPDATE_NODE_STATEMENT = "UPDATE nodes SET x = ?, y = ?, type = ? WHERE id = ?";
+
+    private static final String UPDATE_POSITION_STATEMENT = "UPDATE nodes SET x = ?, y = ? WHERE id = ?";
+
+    private static final String FOREIGN_KEY_VIOLATION = "23503";
+
+    private static final String CHECK_VIOLATION = "23514";
+
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    /**
+     * The number of rows sent to the database in a single JDBC batch.
+     */
+    static final int BATCH_SIZE = 1000;
+
+    /**
+     * The number of rows fetched from the database at a time when reading large result sets.
+     */
+    static final int FETCH_SIZE = 1000;
 
     @PersistenceContext
     private EntityManager em;
 
+    @Inject
+    TransactionSynchronizationRegistry registry;
+
     /**
      * Explicit empty constructor.
      */
@@ -36,28 +129,31 @@ public class NodeRepository {
     }
 
     /**
-     * Creates an edge from source to target.
+     * Creates an edge from source to target with a single statement, which checks that both nodes exist and that the
+     * edge does not exist yet. The nodes are looked up only if the edge cannot be created, to tell why. The edge is
+     * stored in canonical order.
      *
      * @param source the source
      * @param target the target
      */
     public void createEdge(String source, String target) {
-        var from = em.find(Node.class, source);
-        if (from == null) {
-            throw new IllegalArgumentException("Source not found");
-        }
-
-        var to = em.find(Node.class, target);
-        if (to == null) {
-            throw new IllegalArgumentException("Target not found");
-        }
-
-        if (from.getEdges().contains(to) || to.getEdges().contains(from)) {
+        var edge = new Edge(source, target);
+        int count = em.unwrap(Session.class).doReturningWork(connection -> {
+            try (var statement = connection.prepareStatement(CREATE_EDGE_STATEMENT)) {
+                statement.setString(1, edge.source());
+                statement.setString(2, edge.target());
+                return statement.executeUpdate();
+            } catch (SQLException e) {
+                if (isViolation(e, FOREIGN_KEY_VIOLATION)) {
+                    throw new IllegalArgumentException("Source or target not found");
+                }
+                throw e;
+            }
+        });
+        if (count == 0) {
+            checkNodes(source, target);
             throw new IllegalArgumentException("Edge already exists");
         }
-
-        from.getEdges().add(to);
-        em.merge(from);
     }
 
     /**
@@ -70,95 +166,317 @@ public class NodeRepository {
     }
 
     /**
-     * Delete all nodes.
+     * Delete all nodes and edges. The tables are truncated, so that the time taken does not depend on the size of the
+     * graph.
      */
     public void deleteAllNodes() {
-        em.createQuery("DELETE FROM Node").executeUpdate();
+        em.flush();
+        em.unwrap(Session.class).doWork(connection -> {
+            try (var statement = connection.createStatement()) {
+                statement.execute(TRUNCATE_STATEMENT);
+            }
+        });
+        em.clear();
+        evict(Cache::evictAllRegions);
     }
 
     /**
-     * Deletes the edge from source to target.
+     * Writes the changes held by the persistence context to the database.
+     */
+    public void flush() {
+        em.flush();
+    }
+
+    /**
+     * Inserts the given edges using JDBC batches, without going through the persistence context. Since the graph is
+     * undirected, each edge is stored once, in canonical order. Edges that already exist are ignored.
+     *
+     * @param edges the edges to be inserted
+     * @throws IllegalArgumentException if the source or the target of an edge does not exist
+     */
+    public void insertEdges(Collection<Edge> edges) {
+        insertEdges(INSERT_EDGE_STATEMENT, edges);
+    }
+
+    /**
+     * Inserts the given nodes using JDBC batches, without going through the persistence context.
+     *
+     * @param nodes the nodes to be inserted
+     * @throws IllegalArgumentException if a node already exists
+     */
+    public void insertNodes(Collection<Node> nodes) {
+        insertNodes(INSERT_NODE_STATEMENT, nodes);
+    }
+
+    /**
+     * Creates the staging tables, into which a graph is loaded before replacing the current graph. The tables have
+     * the same constraints as the tables of the graph, with the exception of the foreign keys, and are dropped when
+     * the current transaction ends.
+     */
+    public void createStagingTables() {
+        em.unwrap(Session.class).doWork(connection -> {
+            try (var statement = connection.createStatement()) {
+                statement.execute(CREATE_STAGED_NODES_STATEMENT);
+                statement.execute(CREATE_STAGED_EDGES_STATEMENT);
+            }
+        });
+    }
+
+    /**
+     * Inserts the given edges into the staging table using JDBC batches. Edges that already exist are ignored.
+     *
+     * @param edges the edges to be staged
+     */
+    public void stageEdges(Collection<Edge> edges) {
+        insertEdges(STAGE_EDGE_STATEMENT, edges);
+    }
+
+    /**
+     * Inserts the given nodes into the staging table using JDBC batches. Nodes that already exist are ignored.
+     *
+     * @param nodes the nodes to be staged
+     */
+    public void stageNodes(Collection<Node> nodes) {
+        insertNodes(STAGE_NODE_STATEMENT, nodes);
+    }
+
+    /**
+     * Replaces the graph with the staged graph. The tables of the graph are truncated, so that the time taken does
+     * not depend on the size of the current graph, and they are locked until the current transaction ends.
+     *
+     * @throws IllegalArgumentException if the source or the target of a staged edge has not been staged
+     */
+    public void replaceWithStaged() {
+        em.flush();
+        em.unwrap(Session.class).doWork(connection -> {
+            try (var statement = connection.createStatement()) {
+                if (exists(statement, MISSING_STAGED_SOURCE_QUERY)) {
+                    throw new IllegalArgumentException("Source not found");
+                }
+                if (exists(statement, MISSING_STAGED_TARGET_QUERY)) {
+                    throw new IllegalArgumentException("Target not found");
+                }
+                statement.execute(TRUNCATE_STATEMENT);
+                statement.executeUpdate(COPY_STAGED_NODES_STATEMENT);
+                statement.executeUpdate(COPY_STAGED_EDGES_STATEMENT);
+            }
+        });
+        em.clear();
+        evict(Cache::evictAllRegions);
+    }
+
+    /**
+     * Deletes the edge between source and target, in either direction, with a single statement. The nodes are looked
+     * up only if the edge does not exist, to tell whether they exist.
      *
      * @param source the source
      * @param target the target
      * @return the number of deleted edges
      */
-    @Transactional
     public int deleteEdge(String source, String target) {
-        var from = em.find(Node.class, source);
-        if (from == null) {
-            throw new IllegalArgumentException("Source not found");
-        }
-
-        var to = em.find(Node.class, target);
-        if (to == null) {
-            throw new IllegalArgumentException("Target not found");
-        }
-
-        if (from.getEdges().contains(to)) {
-            from.removeEdge(to);
-            em.merge(from);
-            return 1;
-        } else {
+        var edge = new Edge(source, target);
+        int count = em.unwrap(Session.class).doReturningWork(connection -> {
+            try (var statement = connection.prepareStatement(DELETE_EDGE_STATEMENT)) {
+                statement.setString(1, edge.source());
+                statement.setString(2, edge.target());
+                return statement.executeUpdate();
+            }
+        });
+        if (count == 0) {
+            checkNodes(source, target);
             return 0;
         }
+        return count;
     }
 
     /**
-     * Deletes the node with the given id.
+     * Deletes the node with the given id with a single statement, without going through the persistence context. The
+     * edges of the node must have been deleted already.
      *
      * @param id the id
      * @return the number of deleted nodes
      */
     public int deleteNode(String id) {
-        var found = em.find(Node.class, id);
-        if (found != null) {
-            em.remove(found);
-            return 1;
-        }
-        return 0;
+        int count = em.unwrap(Session.class).doReturningWork(connection -> {
+            try (var statement = connection.prepareStatement(DELETE_NODE_STATEMENT)) {
+                statement.setString(1, id);
+                return statement.executeUpdate();
+            }
+        });
+        evict(cache -> cache.evictEntityData(Node.class, id));
+        return count;
+    }
+
+    /**
+     * Deletes the edges of the node with the given id with a single statement, without going through the persistence
+     * context.
+     *
+     * @param id the id
+     * @return the deleted edges
+     */
+    public Set<Edge> deleteNodeEdges(String id) {
+        var deleted = new TreeSet<Edge>();
+        em.unwrap(Session.class).doWork(connection -> {
+            try (var statement = connection.prepareStatement(DELETE_NODE_EDGES_RETURNING_STATEMENT)) {
+                statement.setString(1, id);
+                statement.setString(2, id);
+                try (var rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        deleted.add(new Edge(rows.getString(1), rows.getString(2)));
+                    }
+                }
+            }
+        });
+        return deleted;
     }
 
     /**
-     * Returns the graph.
+     * Deletes the given edges using JDBC batches, without going through the persistence context.
+     *
+     * @param edges the edges to be deleted
+     * @return the edges that existed and have been deleted
+     */
+    public List<Edge> deleteEdges(Collection<Edge> edges) {
+        var deleted = new ArrayList<Edge>();
+        em.unwrap(Session.class).doWork(connection -> {
+            try (var statement = connection.prepareStatement(DELETE_EDGE_STATEMENT)) {
+                var batch = new ArrayList<Edge>(BATCH_SIZE);
+                for (var edge : edges) {
+                    statement.setString(1, edge.source());
+                    statement.setString(2, edge.target());
+                    statement.addBatch();
+                    batch.add(edge);
+                    if (batch.size() == BATCH_SIZE) {
+                        collectDeleted(statement.executeBatch(), batch, deleted);
+                    }
+                }
+                collectDeleted(statement.executeBatch(), batch, deleted);
+            }
+        });
+        return deleted;
+    }
+
+    /**
+     * Deletes the nodes with the given IDs, together with their edges, using JDBC batches, without going through the
+     * persistence context.
+     *
+     * @param ids the IDs of the nodes to be deleted
+     */
+    public void deleteNodes(Collection<String> ids) {
+        em.unwrap(Session.class).doWork(connection -> {
+            try (var edges = connection.prepareStatement(DELETE_NODE_EDGES_STATEMENT);
+                 var nodes = connection.prepareStatement(DELETE_NODE_STATEMENT)) {
+                var count = 0;
+                for (var id : ids) {
+                    edges.setString(1, id);
+                    edges.setString(2, id);
+                    edges.addBatch();
+                    nodes.setString(1, id);
+                    nodes.addBatch();
+                    if (++count % BATCH_SIZE == 0) {
+                        edges.executeBatch();
+                        nodes.executeBatch();
+                    }
+                }
+                edges.executeBatch();
+                nodes.executeBatch();
+            }
+        });
+        evict(cache -> ids.forEach(id -> cache.evictEntityData(Node.class, id)));
+    }
+
+    /**
+     * Returns the graph. Nodes and edges are read with two separate queries, each through a forward-only cursor,
+     * {@value #FETCH_SIZE} rows at a time, so that exactly one object is allocated for each node and for each edge.
+     * <p>
+     * The current transaction is made repeatable read, so that both queries see the same state of the database and no
+     * edge is read without its nodes. Hence, this method must be invoked before any other statement of the
+     * transaction.
      *
      * @return the graph
      */
-    @SuppressWarnings("unchecked")
     public Graph fetchGraph() {
-        List<Object[]> rows = em.createNativeQuery(FETCH_GRAPH_QUERY).getResultList();
-
         Graph graph = new Graph();
 
-        for (Object[] row : rows) {
-            var id = (String) row[0];
-            var x = (Integer) row[1];
-            var y = (Integer) row[2];
-            var type = NodeType.valueOf((String) row[3]);
-            var target = (String) row[4];
-
-            graph.addNode(new Node().setId(id).setX(x).setY(y).setType(type));
-            if (target != null) {
-                graph.addEdge(new Edge(id, target));
+        em.unwrap(Session.class).doWork(connection -> {
+            try (var statement = connection.createStatement()) {
+                statement.execute(REPEATABLE_READ_STATEMENT);
             }
+        });
+
+        try (Stream<?> rows = stream(FETCH_NODES_QUERY)) {
+            rows.forEach(result -> {
+                var row = (Object[]) result;
+                var id = (String) row[0];
+                var x = (Integer) row[1];
+                var y = (Integer) row[2];
+                var type = NodeType.valueOf((String) row[3]);
+                graph.addNode(new Node().setId(id).setX(x).setY(y).setType(type));
+            });
+        }
+
+        // edges are stored once, in canonical order
+        try (Stream<?> rows = stream(FETCH_EDGES_QUERY)) {
+            rows.forEach(result -> {
+                var row = (Object[]) result;
+                graph.addEdge(new Edge((String) row[0], (String) row[1]));
+            });
         }
 
         return graph;
     }
 
     /**
-     * Returns the IDs of all lexemes linked to the given node, root node excluded.
+     * Returns the edges of the nodes with the given IDs.
      *
-     * @param node the node
-     * @param root the root node
-     * @return the IDs of all lexemes linked to the given node, root node excluded
+     * @param ids the IDs of the nodes
+     * @return the edges of the nodes with the given IDs
+     */
+    public Set<Edge> fetchEdges(Collection<String> ids) {
+        var edges = new TreeSet<Edge>();
+        for (var chunk : chunks(ids)) {
+            List<?> rows = em.createNativeQuery(FETCH_NODE_EDGES_QUERY)
+                    .setParameter("ids", chunk)
+                    .getResultList();
+            rows.forEach(result -> {
+                var row = (Object[]) result;
+                edges.add(new Edge((String) row[0], (String) row[1]));
+            });
+        }
+        return edges;
+    }
+
+    /**
+     * Returns the IDs, among the given ones, of the nodes that exist.
+     *
+     * @param ids the IDs of the nodes
+     * @return the IDs of the nodes that exist
      */
     @SuppressWarnings("unchecked")
-    public List<String> fetchLinkedLexemes(String node, String root) {
-        return em.createNativeQuery(FETCH_LEXEME_RELATED_EDGES_QUERY, String.class)
-                .setParameter("node", node)
-                .setParameter("root", root)
-                .getResultList();
+    public Set<String> findNodes(Collection<String> ids) {
+        var found = new HashSet<String>();
+        for (var chunk : chunks(ids)) {
+            found.addAll(em.createNativeQuery(FIND_NODES_QUERY, String.class)
+                    .setParameter("ids", chunk)
+                    .getResultList());
+        }
+        return found;
+    }
+
+    /**
+     * Locks the rows of the given nodes until the end of the current transaction, so that they cannot be changed by
+     * other transactions in the meantime. The rows are locked in the order of their IDs, so as to avoid deadlocks.
+     *
+     * @param ids the IDs of the nodes
+     */
+    public void lockNodes(Collection<String> ids) {
+        var sorted = new TreeSet<String>(Edge::compareByCodePoint);
+        sorted.addAll(ids);
+        for (var chunk : chunks(sorted)) {
+            em.createNativeQuery(LOCK_NODES_QUERY, String.class)
+                    .setParameter("ids", chunk)
+                    .getResultList();
+        }
     }
 
     /**
@@ -188,4 +506,255 @@ public class NodeRepository {
         }
         return 0;
     }
+
+    /**
+     * Updates the given nodes using JDBC batches, without going through the persistence context.
+     *
+     * @param nodes the nodes to be updated
+     * @throws IllegalArgumentException if a node does not exist
+     */
+    public void updateNodes(Collection<Node> nodes) {
+        em.unwrap(Session.class).doWork(connection -> {
+            try (var statement = connection.prepareStatement(UPDATE_NODE_STATEMENT)) {
+                var count = 0;
+                for (var node : nodes) {
+                    statement.setInt(1, node.getX());
+                    statement.setInt(2, node.getY());
+                    statement.setString(3, node.getType().name());
+                    statement.setString(4, node.getId());
+                    statement.addBatch();
+                    if (++count % BATCH_SIZE == 0) {
+                        checkUpdated(statement.executeBatch());
+                    }
+                }
+                checkUpdated(statement.executeBatch());
+            }
+        });
+        evictNodes(nodes);
+    }
+
+    /**
+     * Updates the positions of the given nodes using JDBC batches, without going through the persistence context.
+     * The types of the nodes are left unchanged.
+     *
+     * @param nodes the nodes to be moved
+     */
+    public void updatePositions(Collection<Node> nodes) {
+        em.unwrap(Session.class).doWork(connection -> {
+            try (var statement = connection.prepareStatement(UPDATE_POSITION_STATEMENT)) {
+                var count = 0;
+                for (var node : nodes) {
+                    statement.setInt(1, node.getX());
+                    statement.setInt(2, node.getY());
+                    statement.setString(3, node.getId());
+                    statement.addBatch();
+                    if (++count % BATCH_SIZE == 0) {
+                        statement.executeBatch();
+                    }
+                }
+                statement.executeBatch();
+            }
+        });
+        evictNodes(nodes);
+    }
+
+    /**
+     * Inserts the given edges using JDBC batches and the given statement.
+     *
+     * @param sql   the statement
+     * @param edges the edges to be inserted
+     * @throws IllegalArgumentException if the source or the target of an edge does not exist, or if they are the same
+     */
+    private void insertEdges(String sql, Collection<Edge> edges) {
+        em.unwrap(Session.class).doWork(connection -> {
+            try (var statement = connection.prepareStatement(sql)) {
+                var count = 0;
+                for (var edge : edges) {
+                    statement.setString(1, edge.source());
+                    statement.setString(2, edge.target());
+                    statement.addBatch();
+                    if (++count % BATCH_SIZE == 0) {
+                        statement.executeBatch();
+                    }
+                }
+                statement.executeBatch();
+            } catch (SQLException e) {
+                if (isViolation(e, FOREIGN_KEY_VIOLATION)) {
+                    throw new IllegalArgumentException("Source or target not found");
+                }
+                if (isViolation(e, CHECK_VIOLATION)) {
+                    throw new IllegalArgumentException("Source and target must be different");
+                }
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Inserts the given nodes using JDBC batches and the given statement.
+     *
+     * @param sql   the statement
+     * @param nodes the nodes to be inserted
+     * @throws IllegalArgumentException if a node already exists and the statement does not ignore it
+     */
+    private void insertNodes(String sql, Collection<Node> nodes) {
+        em.unwrap(Session.class).doWork(connection -> {
+            try (var statement = connection.prepareStatement(sql)) {
+                var count = 0;
+                for (var node : nodes) {
+                    statement.setString(1, node.getId());
+                    statement.setInt(2, node.getX());
+                    statement.setInt(3, node.getY());
+                    statement.setString(4, node.getType().name());
+                    statement.addBatch();
+                    if (++count % BATCH_SIZE == 0) {
+                        statement.executeBatch();
+                    }
+                }
+                statement.executeBatch();
+            } catch (SQLException e) {
+                if (isViolation(e, UNIQUE_VIOLATION)) {
+                    throw new IllegalArgumentException("Duplicated node");
+                }
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Checks that every statement of a batch has updated a row.
+     *
+     * @param counts the update counts of the batch
+     * @throws IllegalArgumentException if a statement has not updated any row
+     */
+    private static void checkUpdated(int[] counts) {
+        for (var count : counts) {
+            if (count == 0) {
+                throw new IllegalArgumentException("Node not found");
+            }
+        }
+    }
+
+    /**
+     * Checks that the given nodes exist.
+     *
+     * @param source the source
+     * @param target the target
+     * @throws IllegalArgumentException if either node does not exist
+     */
+    private void checkNodes(String source, String target) {
+        var found = findNodes(List.of(source, target));
+        if (!found.contains(source)) {
+            throw new IllegalArgumentException("Source not found");
+        }
+        if (!found.contains(target)) {
+            throw new IllegalArgumentException("Target not found");
+        }
+    }
+
+    /**
+     * Evicts the given nodes from the second-level cache.
+     *
+     * @param nodes the nodes
+     */
+    private void evictNodes(Collection<Node> nodes) {
+        evict(cache -> nodes.forEach(node -> cache.evictEntityData(Node.class, node.getId())));
+    }
+
+    /**
+     * Applies the given eviction to the second-level cache both now and once the current transaction has completed,
+     * so that no concurrent transaction can cache the data as it was before being changed through JDBC.
+     *
+     * @param eviction the eviction
+     */
+    private void evict(Consumer<Cache> eviction) {
+        var cache = em.getEntityManagerFactory().unwrap(SessionFactory.class).getCache();
+        eviction.accept(cache);
+        registry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                eviction.accept(cache);
+            }
+        });
+    }
+
+    /**
+     * Splits the given collection into lists of at most {@value #BATCH_SIZE} elements, so that queries with an
+     * {@code IN} clause never exceed the maximum number of parameters.
+     *
+     * @param elements the elements
+     * @param <T>      the type of the elements
+     * @return the lists of elements
+     */
+    private static <T> List<List<T>> chunks(Collection<T> elements) {
+        var list = List.copyOf(elements);
+        var chunks = new ArrayList<List<T>>();
+        for (int i = 0; i < list.size(); i += BATCH_SIZE) {
+            chunks.add(list.subList(i, Math.min(i + BATCH_SIZE, list.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * Adds to the deleted edges the edges of the given batch whose statement deleted at least one row, then clears
+     * the batch.
+     *
+     * @param counts  the update counts of the batch
+     * @param batch   the edges of the batch
+     * @param deleted the deleted edges
+     */
+    private static void collectDeleted(int[] counts, List<Edge> batch, List<Edge> deleted) {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                deleted.add(batch.get(i));
+            }
+        }
+        batch.clear();
+    }
+
+    /**
+     * Returns whether the given exception, or any exception chained to it, is a violation of the given kind.
+     *
+     * @param e     the exception
+     * @param state the SQL state of the violation
+     * @return whether the given exception is a violation of the given kind
+     */
+    private static boolean isViolation(SQLException e, String state) {
+        for (var next = e; next != null; next = next.getNextException()) {
+            if (state.equals(next.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Executes the given query, which returns a single boolean.
+     *
+     * @param statement the statement
+     * @param query     the query
+     * @return the result of the query
+     * @throws SQLException if a database access error occurs
+     */
+    private static boolean exists(Statement statement, String query) throws SQLException {
+        try (var result = statement.executeQuery(query)) {
+            return result.next() && result.getBoolean(1);
+        }
+    }
+
+    /**
+     * Executes the given native query, returning its rows through a forward-only cursor.
+     *
+     * @param query the query
+     * @return the rows
+     */
+    private Stream<?> stream(String query) {
+        return em.createNativeQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, FETCH_SIZE)
+                .getResultStream();
+    }
 }
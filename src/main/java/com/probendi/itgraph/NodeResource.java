@@ -9,10 +9,15 @@ import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
 
 /**
  * Exposes the RESTful endpoints to add, delete, and update nodes.
+ * <p>
+ * By default, every endpoint returns the whole graph. If the {@code delta} query parameter is {@code true}, only the
+ * changes applied to the graph are returned as a {@link GraphDelta}.
  *
  * @author Daniele Di Salvo
  * @since 1.0.0
@@ -28,6 +33,9 @@ public class NodeResource {
     @Inject
     NodeService nodeService;
 
+    @Inject
+    PositionBuffer positions;
+
     /**
      * Explicit empty constructor.
      */
@@ -37,46 +45,55 @@ public class NodeResource {
     /**
      * Creates the given node.
      *
-     * @param node the node to be created
-     * @return the graph
+     * @param node  the node to be created
+     * @param delta whether only the changes applied to the graph must be returned
+     * @return the graph, or the changes applied to the graph
      */
     @POST
-    public Graph createNode(Node node) {
-        nodeService.createNode(node);
-        return graphService.getGraph();
+    public Response createNode(Node node, @QueryParam("delta") boolean delta) {
+        return respond(nodeService.createNode(node), delta);
     }
 
     /**
      * Deletes the given node.
      *
-     * @param id the id of the node to be created
-     * @return the graph
+     * @param id    the id of the node to be created
+     * @param delta whether only the changes applied to the graph must be returned
+     * @return the graph, or the changes applied to the graph
      */
     @Path("/{id}")
     @DELETE
-    public Graph deleteNode(@PathParam("id") String id) {
-        if (nodeService.deleteNode(id) == 0) {
-            throw new NotFoundException();
-        }
-        return graphService.getGraph();
+    public Response deleteNode(@PathParam("id") String id, @QueryParam("delta") boolean delta) {
+        return respond(nodeService.deleteNode(id).orElseThrow(NotFoundException::new), delta);
     }
 
     /**
-     * Deletes the given node.
+     * Updates the given node. If only the position of the node has changed and {@link PositionBuffer} is enabled, the
+     * update is written to the database asynchronously.
      *
-     * @param id   the id of the node to be updated
-     * @param node the updated node
-     * @return the graph
+     * @param id    the id of the node to be updated
+     * @param node  the updated node
+     * @param delta whether only the changes applied to the graph must be returned
+     * @return the graph, or the changes applied to the graph
      */
     @Path("/{id}")
     @PUT
-    public Graph updateNode(@PathParam("id") String id, Node node) {
+    public Response updateNode(@PathParam("id") String id, Node node, @QueryParam("delta") boolean delta) {
         if (!id.equals(node.getId())) {
             throw new IllegalArgumentException("id does not match node's id");
         }
-        if (nodeService.updateNode(node) == 0) {
-            throw new NotFoundException();
-        }
-        return graphService.getGraph();
+        var changes = positions.offer(node).or(() -> nodeService.updateNode(node));
+        return respond(changes.orElseThrow(NotFoundException::new), delta);
+    }
+
+    /**
+     * Returns either the given changes or the whole graph.
+     *
+     * @param changes the changes applied to the graph
+     * @param delta   whether only the changes applied to the graph must be returned
+     * @return the response
+     */
+    private Response respond(GraphDelta changes, boolean delta) {
+        return Response.ok(delta ? changes : graphService.getGraph()).build();
     }
 }
@@ -1,14 +1,18 @@
 package com.probendi.itgraph;
 
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.TreeSet;
+import java.util.function.Supplier;
 
 /**
  * Handles the business logic of a {@link Node}.
@@ -22,6 +26,9 @@ public class NodeService {
     @Inject
     NodeRepository repository;
 
+    @Inject
+    Event<GraphDelta> changes;
+
     /**
      * Explicit empty constructor.
      */
@@ -33,24 +40,99 @@ public class NodeService {
      *
      * @param source the source
      * @param target the target
+     * @return the changes applied to the graph
      */
     @Transactional
-    public void createEdge(@NotBlank(message = "source must not be blank") String source,
-                           @NotBlank(message = "target must not be blank") String target) {
+    public GraphDelta createEdge(@NotBlank(message = "source must not be blank") String source,
+                                 @NotBlank(message = "target must not be blank") String target) {
         repository.createEdge(source, target);
+        return publish(new GraphDelta().addEdge(new Edge(source, target)));
     }
 
     /**
      * Creates the given node.
      *
      * @param node the node to be created
+     * @return the changes applied to the graph
      */
     @Transactional
-    public void createNode(@NotNull @Valid Node node) {
+    public GraphDelta createNode(@NotNull @Valid Node node) {
         if (repository.findNode(node.getId()) != null) {
             throw new IllegalArgumentException("Duplicated node");
         }
         repository.createNode(node);
+        return publish(new GraphDelta().addNode(node));
+    }
+
+    /**
+     * Applies the given changes in a single transaction, in the following order: created nodes, updated nodes,
+     * removed edges, added edges and deleted nodes. Changes are written in JDBC batches, without being managed by the
+     * persistence context. If any change cannot be applied, none is.
+     *
+     * @param patch the changes to be applied
+     * @return the changes applied to the graph
+     */
+    @Transactional
+    public GraphDelta applyPatch(@NotNull GraphPatch patch) {
+        // the changes are validated before being sorted, which requires ids and endpoints
+        patch.getCreatedNodes().forEach(NodeService::validate);
+        patch.getUpdatedNodes().forEach(NodeService::validate);
+        patch.getDeletedNodes().forEach(NodeService::validate);
+        patch.getRemovedEdges().forEach(NodeService::validate);
+        patch.getAddedEdges().forEach(NodeService::validate);
+        var createdNodes = new TreeSet<>(patch.getCreatedNodes());
+        var updatedNodes = new TreeSet<>(patch.getUpdatedNodes());
+        var deletedNodes = new TreeSet<>(patch.getDeletedNodes());
+        var removedEdges = new TreeSet<>(patch.getRemovedEdges());
+        var addedEdges = new TreeSet<>(patch.getAddedEdges());
+        var delta = new GraphDelta();
+
+        if (!createdNodes.isEmpty()) {
+            var ids = createdNodes.stream().map(Node::getId).toList();
+            if (!repository.findNodes(ids).isEmpty()) {
+                throw new IllegalArgumentException("Duplicated node");
+            }
+            repository.insertNodes(createdNodes);
+            createdNodes.forEach(delta::addNode);
+        }
+
+        if (!updatedNodes.isEmpty()) {
+            var ids = updatedNodes.stream().map(Node::getId).toList();
+            if (repository.findNodes(ids).size() != ids.size()) {
+                throw new IllegalArgumentException("Node not found");
+            }
+            repository.updateNodes(updatedNodes);
+            updatedNodes.forEach(node -> {
+                // a node created by this patch may have been updated by it as well
+                delta.getNodes().remove(node);
+                delta.addNode(node);
+            });
+        }
+
+        if (!removedEdges.isEmpty()) {
+            repository.deleteEdges(removedEdges).forEach(delta::addDeletedEdge);
+        }
+
+        if (!addedEdges.isEmpty()) {
+            repository.insertEdges(addedEdges);
+            addedEdges.forEach(delta::addEdge);
+        }
+
+        if (!deletedNodes.isEmpty()) {
+            var ids = deletedNodes;
+            repository.lockNodes(ids);
+            if (repository.findNodes(ids).size() != ids.size()) {
+                throw new IllegalArgumentException("Node not found");
+            }
+            repository.fetchEdges(ids).forEach(delta::addDeletedEdge);
+            repository.deleteNodes(ids);
+            ids.forEach(delta::addDeletedNode);
+            // nodes and edges created by this patch may have been deleted by it as well
+            delta.getNodes().removeIf(node -> ids.contains(node.getId()));
+            delta.getEdges().removeIf(edge -> ids.contains(edge.source()) || ids.contains(edge.target()));
+        }
+
+        return publish(delta);
     }
 
     /**
@@ -59,72 +141,184 @@ public class NodeService {
     @Transactional
     public void deleteAllNodes() {
         repository.deleteAllNodes();
+        publish(new GraphDelta().setReplaced(true));
     }
 
 
     /**
-     * Deletes the edge from source to target.
+     * Deletes the edge between source and target, in either direction.
      *
      * @param source the source
      * @param target the target
-     * @return the number of deleted edges
+     * @return the changes applied to the graph, or an empty optional if the edge does not exist
      */
     @Transactional
-    public int deleteEdge(String source, String target) {
-        return repository.deleteEdge(source, target);
+    public Optional<GraphDelta> deleteEdge(String source, String target) {
+        if (repository.deleteEdge(source, target) == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(publish(new GraphDelta().addDeletedEdge(new Edge(source, target))));
     }
 
     /**
      * Deletes the node with the given id.
      *
      * @param id the id
-     * @return the number of deleted nodes
+     * @return the changes applied to the graph, or an empty optional if the node does not exist
      */
     @Transactional
-    public int deleteNode(@NotBlank(message = "id must not be blank") String id) {
-        return repository.deleteNode(id);
+    public Optional<GraphDelta> deleteNode(@NotBlank(message = "id must not be blank") String id) {
+        // no edge of the node can be created by a concurrent transaction once its row is locked
+        repository.lockNodes(List.of(id));
+        var edges = repository.deleteNodeEdges(id);
+        if (repository.deleteNode(id) == 0) {
+            return Optional.empty();
+        }
+        var delta = new GraphDelta().addDeletedNode(id);
+        edges.forEach(delta::addDeletedEdge);
+        return Optional.of(publish(delta));
     }
 
     /**
-     * Returns the graph.
-     *
-     * @return the graph
+     * Starts importing a graph in chunks, by {@link #importNodes(Collection)} and {@link #importEdges(Collection)},
+     * which stage them until {@link #finishImport()} is invoked within the same transaction.
      */
     @Transactional
-    public Graph fetchGraph() {
-        return repository.fetchGraph();
+    public void startImport() {
+        repository.createStagingTables();
+    }
+
+    /**
+     * Replaces all nodes and edges with the imported ones. Until the transaction is committed, the current graph is
+     * still returned to readers.
+     */
+    @Transactional
+    public void finishImport() {
+        repository.replaceWithStaged();
+        publish(new GraphDelta().setReplaced(true));
     }
 
     /**
-     * Returns the IDs of all lexemes linked to the given node, root node excluded.
+     * Imports the given edges, which are staged in JDBC batches, without being managed by the persistence context.
+     * The graph is expected to be replaced as a whole, see {@link #startImport()}.
      *
-     * @param node the node
-     * @param root the root node
-     * @return the IDs of all lexemes linked to the given node, root node excluded
+     * @param edges the edges to be imported
      */
-    public List<String> fetchLinkedLexemes(String node, String root) {
-        return repository.fetchLinkedLexemes(node, root);
+    @Transactional
+    public void importEdges(@NotNull Collection<Edge> edges) {
+        repository.stageEdges(edges);
     }
 
     /**
-     * Returns the node with the given id.
+     * Imports the given nodes, which are staged in JDBC batches, without being managed by the persistence context.
+     * The graph is expected to be replaced as a whole, see {@link #startImport()}.
      *
-     * @param id the id
-     * @return the node with the given id
+     * @param nodes the nodes to be imported
      */
     @Transactional
-    public Optional<Node> findNode(@NotBlank(message = "id must not be blank") String id) {
-        return Optional.ofNullable(repository.findNode(id));
+    public void importNodes(@NotNull Collection<Node> nodes) {
+        repository.stageNodes(nodes);
+    }
+
+    /**
+     * Returns the graph, which is read in a new transaction, so that it reflects a single state of the database.
+     *
+     * @return the graph
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public Graph fetchGraph() {
+        return repository.fetchGraph();
     }
 
     /**
      * Updates the given node.
      *
      * @param node the node to be updated
-     * @return the number of updated nodes
+     * @return the changes applied to the graph, or an empty optional if the node does not exist
+     */
+    @Transactional
+    public Optional<GraphDelta> updateNode(@NotNull @Valid Node node) {
+        if (repository.updateNode(node) == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(publish(new GraphDelta().addNode(node)));
+    }
+
+    /**
+     * Updates the positions of the given nodes, which are written in JDBC batches. No changes are published, since
+     * they have already been applied to the graph.
+     * <p>
+     * The rows of the nodes are locked before the positions are obtained, so that the positions are not changed by
+     * another transaction committed in the meantime: the positions must not include those already superseded by a
+     * committed change, which would otherwise be overwritten.
+     *
+     * @param ids       the IDs of the nodes that may be moved
+     * @param positions supplies the nodes to be moved, once their rows have been locked
      */
     @Transactional
-    public int updateNode(@NotNull @Valid Node node) {
-        return repository.updateNode(node);
+    public void updatePositions(@NotNull Collection<String> ids, @NotNull Supplier<Collection<Node>> positions) {
+        repository.lockNodes(ids);
+        repository.updatePositions(positions.get());
+    }
+
+    /**
+     * Checks that the given node, which is not validated by the persistence provider, has an id and a type.
+     *
+     * @param node the node
+     */
+    private static void validate(Node node) {
+        if (node == null) {
+            throw new IllegalArgumentException("node must not be null");
+        }
+        if (node.getId() == null || node.getId().isBlank()) {
+            throw new IllegalArgumentException("id must not be blank");
+        }
+        if (node.getType() == null) {
+            throw new IllegalArgumentException("type must not be null");
+        }
+    }
+
+    /**
+     * Checks that the given node id is not blank.
+     *
+     * @param id the node id
+     */
+    private static void validate(String id) {
+        if (id == null || id.isBlank()) {
+            throw new IllegalArgumentException("id must not be blank");
+        }
+    }
+
+    /**
+     * Checks that the given edge, which is not validated by the persistence provider, has two different endpoints.
+     *
+     * @param edge the edge
+     */
+    private static void validate(Edge edge) {
+        if (edge == null) {
+            throw new IllegalArgumentException("edge must not be null");
+        }
+        if (edge.source() == null || edge.source().isBlank()) {
+            throw new IllegalArgumentException("source must not be blank");
+        }
+        if (edge.target() == null || edge.target().isBlank()) {
+            throw new IllegalArgumentException("target must not be blank");
+        }
+        if (edge.source().equals(edge.target())) {
+            throw new IllegalArgumentException("Source and target must be different");
+        }
+    }
+
+    /**
+     * Publishes the given changes, which are stamped with the new graph revision once the transaction is committed.
+     *
+     * @param delta the changes applied to the graph
+     * @return the given changes
+     */
+    private GraphDelta publish(GraphDelta delta) {
+        // no statement may be executed once the transaction is waiting for the commit lock of the store
+        repository.flush();
+        changes.fire(delta);
+        return delta;
     }
 }
@@ -0,0 +1,218 @@
+package com.probendi.itgraph;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.validation.constraints.NotNull;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces the updates that only move a node, such as those sent while a node is being dragged, so that they are
+ * written to the database in batches instead of one transaction per update.
+ * <p>
+ * When enabled, a position update is applied to the in-memory snapshot at once, so that reads see it immediately, and
+ * is kept in a buffer where later updates of the same node replace earlier ones. The buffer is flushed to the database
+ * every {@code it-graph.positions.flush-interval}, as soon as it holds {@code it-graph.positions.flush-threshold}
+ * nodes, and at shutdown. The positions still in the buffer are lost if the application crashes, so buffering is
+ * disabled by default and every update is then written synchronously.
+ * <p>
+ * Any other change to a buffered node supersedes its buffered position, which is then discarded, and is never
+ * overwritten by it, even if the position is being written when the change is committed.
+ *
+ * @author Daniele Di Salvo
+ * @since 1.0.0
+ */
+@ApplicationScoped
+public class PositionBuffer {
+
+    private static final Logger LOG = Logger.getLogger(PositionBuffer.class);
+
+    @ConfigProperty(name = "it-graph.positions.buffered", defaultValue = "false")
+    boolean buffered;
+
+    @ConfigProperty(name = "it-graph.positions.flush-interval", defaultValue = "200ms")
+    Duration flushInterval;
+
+    @ConfigProperty(name = "it-graph.positions.flush-threshold", defaultValue = "1000")
+    int flushThreshold;
+
+    @Inject
+    GraphStore store;
+
+    @Inject
+    NodeService nodeService;
+
+    @Inject
+    Event<GraphDelta> changes;
+
+    private final Map<String, Node> pending = new LinkedHashMap<>();
+    private Map<String, Node> flushing = new LinkedHashMap<>();
+    private ScheduledExecutorService executor;
+
+    /**
+     * Explicit empty constructor.
+     */
+    public PositionBuffer() {
+    }
+
+    /**
+     * Buffers the given node, if buffering is enabled and the node only differs from the current one by its position.
+     *
+     * @param node the updated node
+     * @return the changes applied to the graph, or an empty optional if the node has not been buffered
+     */
+    public Optional<GraphDelta> offer(@NotNull Node node) {
+        if (!buffered || node.getId() == null || node.getType() == null) {
+            return Optional.empty();
+        }
+        // loads the snapshot if needed, which must not be done while holding the commit lock
+        store.current();
+        return store.exclusively(current -> {
+            if (current == null) {
+                return Optional.<GraphDelta>empty();
+            }
+            var found = current.findNode(node.getId());
+            if (found.isEmpty() || found.get().getType() != node.getType()) {
+                return Optional.<GraphDelta>empty();
+            }
+
+            var moved = new Node(node.getId(), node.getX(), node.getY(), node.getType());
+            var delta = new GraphDelta().addNode(moved);
+            // no transaction is active, so the delta is applied before this method returns; it discards any earlier
+            // position of the node, hence it must be fired before the node is buffered, and no other change can be
+            // applied in between since the commit lock is held
+            changes.fire(delta);
+            boolean full;
+            synchronized (this) {
+                pending.put(moved.getId(), moved);
+                full = pending.size() >= flushThreshold;
+            }
+            if (full) {
+                try {
+                    executor.execute(this::flush);
+                } catch (RejectedExecutionException e) {
+                    // the application is shutting down and the buffer is flushed one last time
+                }
+            }
+            return Optional.of(delta);
+        });
+    }
+
+    /**
+     * Returns the positions that have not been written yet.
+     *
+     * @return the positions that have not been written yet, as nodes, the latest positions of a node last
+     */
+    synchronized List<Node> unwritten() {
+        var unwritten = new ArrayList<Node>(flushing.size() + pending.size());
+        unwritten.addAll(flushing.values());
+        unwritten.addAll(pending.values());
+        return unwritten;
+    }
+
+    /**
+     * Writes the buffered positions to the database. If the writing fails, the positions are buffered again, unless
+     * they have been superseded in the meantime.
+     * <p>
+     * The rows of the buffered nodes are locked before the positions are written, and the positions superseded by a
+     * change committed before that are skipped: since such a change is applied while holding the commit lock, the
+     * positions are collected while holding it too. Any later change must wait for the positions to be written, and
+     * thus overwrites them.
+     */
+    void flush() {
+        Map<String, Node> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = new LinkedHashMap<>(pending);
+            pending.clear();
+            flushing = batch;
+        }
+        try {
+            nodeService.updatePositions(Set.copyOf(batch.keySet()), () -> store.exclusively(current -> {
+                synchronized (this) {
+                    return List.copyOf(batch.values());
+                }
+            }));
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                LOG.warnf(e, "Cannot write the positions of %d nodes", batch.size());
+                batch.forEach(pending::putIfAbsent);
+            }
+        } finally {
+            synchronized (this) {
+                flushing = new LinkedHashMap<>();
+            }
+        }
+    }
+
+    /**
+     * Discards the buffered positions superseded by the given changes, which have just been committed and applied by
+     * {@link GraphStore}.
+     *
+     * @param delta the changes
+     */
+    synchronized void discard(GraphDelta delta) {
+        if (delta.isReplaced()) {
+            pending.clear();
+            flushing.clear();
+            return;
+        }
+        for (var node : delta.getNodes()) {
+            pending.remove(node.getId());
+            flushing.remove(node.getId());
+        }
+        for (var id : delta.getDeletedNodes()) {
+            pending.remove(id);
+            flushing.remove(id);
+        }
+    }
+
+    /**
+     * Starts flushing the buffer periodically, if buffering is enabled.
+     *
+     * @param event the startup event
+     */
+    void onStart(@Observes StartupEvent event) {
+        if (buffered) {
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                var thread = new Thread(runnable, "position-buffer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            var delay = flushInterval.toMillis();
+            executor.scheduleWithFixedDelay(this::flush, delay, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops flushing the buffer periodically and flushes it one last time.
+     *
+     * @param event the shutdown event
+     * @throws InterruptedException if interrupted while waiting for the current flush to complete
+     */
+    void onStop(@Observes ShutdownEvent event) throws InterruptedException {
+        if (executor != null) {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+            flush();
+        }
+    }
+}
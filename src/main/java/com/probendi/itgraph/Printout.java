@@ -0,0 +1,500 @@
+package com.probendi.itgraph;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static com.probendi.itgraph.NodeType.LEXEME;
+
+/**
+ * A simplified string representation of a graph starting from a root node.
+ * <p>
+ * The graph is traversed twice, entirely in memory: the first traversal only measures the width of the column where
+ * the lexemes linked to other lexemes are aligned, and the size of the printout, while the second one writes each line
+ * as soon as it is produced. Hence, the printout never exists in memory as a whole, unless it is converted to a
+ * string, for example to be cached.
+ *
+ * @author Daniele Di Salvo
+ * @since 1.0.0
+ */
+public final class Printout {
+
+    private final GraphSnapshot snapshot;
+    private final Node root;
+    private final String text;
+    private int maxLength = -1;
+    private long size = -1;
+
+    /**
+     * Creates a printout.
+     *
+     * @param snapshot the snapshot, or {@code null} if the printout has already been generated
+     * @param root     the root node, or {@code null} if the printout has already been generated
+     * @param text     the generated printout, or {@code null} if the printout has not been generated yet
+     */
+    private Printout(GraphSnapshot snapshot, Node root, String text) {
+        this.snapshot = snapshot;
+        this.root = root;
+        this.text = text;
+    }
+
+    /**
+     * Returns the printout of the given snapshot starting from the given root node.
+     *
+     * @param snapshot the snapshot
+     * @param root     the root node
+     * @return the printout, or an empty optional if the root node does not exist
+     */
+    public static Optional<Printout> of(@NotNull GraphSnapshot snapshot, @NotBlank String root) {
+        return snapshot.findNode(root).map(node -> new Printout(snapshot, node, null));
+    }
+
+    /**
+     * Returns a printout that has already been generated.
+     *
+     * @param text the generated printout
+     * @return a printout that has already been generated
+     */
+    public static Printout ofText(@NotNull String text) {
+        return new Printout(null, null, text);
+    }
+
+    /**
+     * Returns the number of characters of this printout, which is measured without generating it.
+     *
+     * @return the number of characters of this printout
+     */
+    public long size() {
+        if (text != null) {
+            return text.length();
+        }
+        measure();
+        return size;
+    }
+
+    /**
+     * Writes this printout to the given writer. The writer is neither flushed nor closed.
+     *
+     * @param writer the writer
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeTo(@NotNull Writer writer) throws IOException {
+        if (text != null) {
+            writer.write(text);
+            return;
+        }
+        measure();
+        try {
+            var output = new Output(writer, maxLength);
+            traverse(output);
+            output.close();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public String toString() {
+        var writer = new StringWriter();
+        try {
+            writeTo(writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Measures the width of the column where linked lexemes are aligned and the size of this printout, unless they
+     * have already been measured.
+     */
+    private void measure() {
+        if (maxLength < 0) {
+            var measure = new Measure();
+            traverse(measure);
+            maxLength = measure.maxLength();
+            size = measure.size(maxLength);
+        }
+    }
+
+    /**
+     * Traverses the snapshot, sending each line to the given consumer.
+     *
+     * @param lines the consumer of the lines
+     */
+    private void traverse(Lines lines) {
+        var index = snapshot.getIndex();
+        new Traversal(index, index.indexOf(root.getId()), lines).run();
+    }
+
+    /**
+     * Returns the length of the formatted representation of the first {@code depth} counters.
+     *
+     * @param counters the counters
+     * @param depth    the number of counters
+     * @return the length of the formatted representation of the first {@code depth} counters
+     */
+    private static int length(int[] counters, int depth) {
+        var length = depth - 1;
+        for (int i = 0; i < depth; i++) {
+            var counter = counters[i];
+            do {
+                length++;
+                counter /= 10;
+            } while (counter != 0);
+        }
+        return length;
+    }
+
+    /**
+     * Consumes the lines produced by a {@link Traversal}.
+     */
+    private interface Lines {
+
+        /**
+         * Starts the line of a lexeme.
+         *
+         * @param counters the counters representing the depth level of the lexeme
+         * @param depth    the number of counters
+         * @param id       the id of the lexeme
+         */
+        void lexeme(int[] counters, int depth, String id);
+
+        /**
+         * Adds a lexeme linked to the last lexeme.
+         *
+         * @param id the id of the linked lexeme
+         */
+        void link(String id);
+
+        /**
+         * Starts the line of a division or of an opposition.
+         *
+         * @param counters the counters representing the depth level of the node
+         * @param depth    the number of counters
+         */
+        void division(int[] counters, int depth);
+    }
+
+    /**
+     * Measures the width of the column where linked lexemes are aligned, and the size of the printout.
+     */
+    private static final class Measure implements Lines {
+
+        private int max;
+        private int pending = -1;
+        private boolean linked;
+
+        /**
+         * The number of characters of the printout, except the dots of the links.
+         */
+        private long size;
+
+        /**
+         * The number of links, each of which is padded with dots up to the column where linked lexemes are aligned.
+         */
+        private long links;
+
+        @Override
+        public void lexeme(int[] counters, int depth, String id) {
+            finish();
+            pending = length(counters, depth) + 1 + id.length();
+            linked = false;
+            size += pending + 1;
+        }
+
+        @Override
+        public void link(String id) {
+            // the first link is written on the line of the lexeme, the other ones on lines indented as it
+            size += linked ? 3 + id.length() : 2 + id.length() - pending;
+            links++;
+            linked = true;
+        }
+
+        @Override
+        public void division(int[] counters, int depth) {
+            finish();
+            var length = length(counters, depth) + 2;
+            max = Math.max(max, length);
+            size += length + 1;
+        }
+
+        /**
+         * Returns the width of the column where linked lexemes are aligned.
+         *
+         * @return the width of the column where linked lexemes are aligned
+         */
+        private int maxLength() {
+            finish();
+            return max + 3;
+        }
+
+        /**
+         * Returns the number of characters of the printout.
+         *
+         * @param maxLength the width of the column where linked lexemes are aligned
+         * @return the number of characters of the printout
+         */
+        private long size(int maxLength) {
+            return size + links * maxLength;
+        }
+
+        /**
+         * Takes into account the length of the last lexeme line.
+         */
+        private void finish() {
+            if (pending >= 0) {
+                max = Math.max(max, linked ? pending - 1 : pending);
+                pending = -1;
+            }
+        }
+    }
+
+    /**
+     * Writes the lines to a writer.
+     */
+    private static final class Output implements Lines {
+
+        private final Writer writer;
+        private final int maxLength;
+        private boolean open;
+        private int length;
+        private String replacement;
+
+        /**
+         * Creates an output writing to the given writer.
+         *
+         * @param writer    the writer
+         * @param maxLength the width of the column where linked lexemes are aligned
+         */
+        private Output(Writer writer, int maxLength) {
+            this.writer = writer;
+            this.maxLength = maxLength;
+        }
+
+        @Override
+        public void lexeme(int[] counters, int depth, String id) {
+            newLine();
+            writeCounters(counters, depth);
+            write(" ");
+            write(id);
+            length = length(counters, depth) + 1 + id.length();
+            replacement = null;
+        }
+
+        @Override
+        public void link(String id) {
+            if (replacement == null) {
+                var c = maxLength - length;
+                replacement = " " + ".".repeat(c > 0 ? c : 3) + " ";
+            } else {
+                newLine();
+                write(" ".repeat(length));
+            }
+            write(replacement);
+            write(id);
+        }
+
+        @Override
+        public void division(int[] counters, int depth) {
+            newLine();
+            writeCounters(counters, depth);
+            write(" *");
+        }
+
+        /**
+         * Terminates the last line.
+         */
+        private void close() {
+            if (open) {
+                write("\n");
+            }
+        }
+
+        /**
+         * Terminates the current line, if any, and starts a new one.
+         */
+        private void newLine() {
+            if (open) {
+                write("\n");
+            }
+            open = true;
+        }
+
+        /**
+         * Writes the first {@code depth} counters, separated by dots.
+         *
+         * @param counters the counters
+         * @param depth    the number of counters
+         */
+        private void writeCounters(int[] counters, int depth) {
+            write(Integer.toString(counters[0]));
+            for (int i = 1; i < depth; i++) {
+                write(".");
+                write(Integer.toString(counters[i]));
+            }
+        }
+
+        /**
+         * Writes the given string.
+         *
+         * @param s the string
+         */
+        private void write(String s) {
+            try {
+                writer.write(s);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Traverses the index of a snapshot using the Depth-First Search algorithm. The traversal uses an explicit stack,
+     * hence its depth is not limited by the size of the thread stack.
+     */
+    private static final class Traversal {
+
+        private final GraphIndex index;
+        private final int root;
+        private final Lines lines;
+        private final boolean[] visitedNodes;
+
+        /**
+         * Keeps track of the depth level of the node being visited. For example, if the depth is represented as
+         * {@code 1.3.2}, the first three counters would be 1, 3, and 2.
+         */
+        private int[] counters = new int[16];
+
+        /**
+         * The stack of the nodes being visited, together with the position of their next neighbour to be considered
+         * and the number of counters representing the depth level of their children.
+         */
+        private int[] stackNodes = new int[16];
+        private int[] stackPositions = new int[16];
+        private int[] stackDepths = new int[16];
+        private int stackSize;
+
+        /**
+         * Creates a traversal of the given index.
+         *
+         * @param index the index
+         * @param root  the root node
+         * @param lines the consumer of the lines
+         */
+        private Traversal(GraphIndex index, int root, Lines lines) {
+            this.index = index;
+            this.root = root;
+            this.lines = lines;
+            this.visitedNodes = new boolean[index.size()];
+        }
+
+        /**
+         * Visits all the nodes reachable from the root node.
+         */
+        private void run() {
+            counters[0] = 1;
+            push(root, enter(root, 1));
+            while (stackSize > 0) {
+                var top = stackSize - 1;
+                var next = nextChild(top);
+                if (next < 0) {
+                    stackSize--;
+                } else {
+                    var depth = stackDepths[top];
+                    counters[depth - 1]++;
+                    push(next, enter(next, depth));
+                }
+            }
+        }
+
+        /**
+         * Visits the given node, whose depth level is represented by the first {@code depth} counters.
+         *
+         * @param node  the node
+         * @param depth the number of counters representing the depth level of the node
+         * @return the number of counters representing the depth level of the children of the node
+         */
+        private int enter(int node, int depth) {
+            visitedNodes[node] = true;
+            var from = index.offset(node);
+            var to = index.offset(node + 1);
+            var lexeme = index.type(node) == LEXEME;
+
+            // handle lexemes
+            if (lexeme) {
+                lines.lexeme(counters, depth, index.id(node));
+
+                // add a dotted line if this lexeme is not the root node and is linked to another lexeme
+                if (node != root) {
+                    for (int i = from; i < to; i++) {
+                        var t = index.neighbour(i);
+                        if (index.type(t) == LEXEME && t != root) {
+                            lines.link(index.id(t));
+                        }
+                    }
+                }
+            }
+
+            // a node always has at least one edge
+            for (int i = from; i < to; i++) {
+                if (!visitedNodes[index.neighbour(i)]) {
+                    if (depth == counters.length) {
+                        counters = Arrays.copyOf(counters, depth * 2);
+                    }
+                    counters[depth++] = 0;
+                    break;
+                }
+            }
+
+            if (!lexeme) {
+                lines.division(counters, depth);
+            }
+            return depth;
+        }
+
+        /**
+         * Pushes the given node onto the stack.
+         *
+         * @param node  the node
+         * @param depth the number of counters representing the depth level of the children of the node
+         */
+        private void push(int node, int depth) {
+            if (stackSize == stackNodes.length) {
+                stackNodes = Arrays.copyOf(stackNodes, stackSize * 2);
+                stackPositions = Arrays.copyOf(stackPositions, stackSize * 2);
+                stackDepths = Arrays.copyOf(stackDepths, stackSize * 2);
+            }
+            stackNodes[stackSize] = node;
+            stackPositions[stackSize] = index.offset(node);
+            stackDepths[stackSize] = depth;
+            stackSize++;
+        }
+
+        /**
+         * Returns the next child of the node at the given position of the stack that must be visited, or {@code -1}
+         * if there are none left.
+         *
+         * @param top the position of the node in the stack
+         * @return the next child that must be visited, or {@code -1} if there are none left
+         */
+        private int nextChild(int top) {
+            var node = stackNodes[top];
+            var to = index.offset(node + 1);
+            while (stackPositions[top] < to) {
+                var t = index.neighbour(stackPositions[top]++);
+                // handle divisions and oppositions
+                if ((node == root || index.type(node) != LEXEME || index.type(t) != LEXEME) && !visitedNodes[t]) {
+                    return t;
+                }
+            }
+            return -1;
+        }
+    }
+}
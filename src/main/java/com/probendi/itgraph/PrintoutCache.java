@@ -0,0 +1,142 @@
+package com.probendi.itgraph;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.LinkedHashMap;
+
+/**
+ * A bounded cache of printouts, keyed by root node and graph revision. When either the maximum number of entries or
+ * the maximum total size is exceeded, the least recently used printouts are evicted. The cache is cleared whenever
+ * the graph changes.
+ *
+ * @author Daniele Di Salvo
+ * @since 1.0.0
+ */
+@ApplicationScoped
+public class PrintoutCache {
+
+    @ConfigProperty(name = "it-graph.printout-cache.max-entries", defaultValue = "32")
+    int maxEntries;
+
+    @ConfigProperty(name = "it-graph.printout-cache.max-size", defaultValue = "8388608")
+    int maxSize;
+
+    private final LinkedHashMap<Key, String> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * Explicit empty constructor.
+     */
+    public PrintoutCache() {
+    }
+
+    /**
+     * Returns the maximum size, in characters, of a printout that can be cached.
+     *
+     * @return the maximum size of a printout that can be cached
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the cached printout of the given root node at the given revision.
+     *
+     * @param root     the root node
+     * @param revision the graph revision
+     * @return the cached printout, or {@code null} if it is not cached
+     */
+    public synchronized String get(String root, long revision) {
+        var printout = entries.get(new Key(root, revision));
+        if (printout == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return printout;
+    }
+
+    /**
+     * Caches the printout of the given root node at the given revision, evicting the least recently used printouts
+     * if needed. Printouts larger than {@link #getMaxSize()} are not cached.
+     *
+     * @param root     the root node
+     * @param revision the graph revision
+     * @param printout the printout
+     */
+    public synchronized void put(String root, long revision, String printout) {
+        if (maxEntries <= 0 || printout.length() > maxSize) {
+            return;
+        }
+        var previous = entries.put(new Key(root, revision), printout);
+        if (previous != null) {
+            size -= previous.length();
+        }
+        size += printout.length();
+
+        var iterator = entries.values().iterator();
+        while (entries.size() > maxEntries || size > maxSize) {
+            size -= iterator.next().length();
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Clears the cache.
+     */
+    public synchronized void clear() {
+        if (!entries.isEmpty()) {
+            invalidations++;
+        }
+        entries.clear();
+        size = 0;
+    }
+
+    /**
+     * Returns the statistics of this cache.
+     *
+     * @return the statistics of this cache
+     */
+    public synchronized Stats getStats() {
+        return new Stats(entries.size(), size, hits, misses, evictions, invalidations);
+    }
+
+    /**
+     * Clears the cache once a transaction that changed the graph has been committed.
+     *
+     * @param delta the changes
+     */
+    void onChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) GraphDelta delta) {
+        clear();
+    }
+
+    /**
+     * The key of a cached printout.
+     *
+     * @param root     the root node
+     * @param revision the graph revision
+     */
+    private record Key(String root, long revision) {
+    }
+
+    /**
+     * The statistics of a {@link PrintoutCache}.
+     *
+     * @param entries       the number of cached printouts
+     * @param size          the total size, in characters, of the cached printouts
+     * @param hits          the number of lookups that found a cached printout
+     * @param misses        the number of lookups that did not find a cached printout
+     * @param evictions     the number of printouts evicted to make room for new ones
+     * @param invalidations the number of times the cache has been cleared because the graph changed
+     */
+    public record Stats(int entries, long size, long hits, long misses, long evictions, long invalidations) {
+    }
+}
@@ -0,0 +1,308 @@
+package com.probendi.itgraph;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * An immutable k-d tree of points, which finds the points inside a rectangle in logarithmic time plus the number of
+ * points found. The tree is stored implicitly in two arrays sorted by alternating coordinates, so that it takes twelve
+ * bytes per point.
+ * <p>
+ * Points can be moved without rebuilding the tree: the moved points are kept aside, with their new coordinates, and
+ * are checked one by one by every search, hence the tree should be rebuilt once many points have been moved.
+ *
+ * @author Daniele Di Salvo
+ * @since 1.0.0
+ */
+public final class SpatialIndex {
+
+    /**
+     * The number of points below which a subtree is scanned linearly instead of being split.
+     */
+    private static final int LEAF_SIZE = 64;
+
+    private final int[] points;
+    private final int[] coordinates;
+    private final int[] moved;
+    private final int[] movedCoordinates;
+
+    /**
+     * Creates an index.
+     *
+     * @param points           the points, sorted as a k-d tree
+     * @param coordinates      the x and y coordinates of the points, interleaved
+     * @param moved            the moved points, sorted
+     * @param movedCoordinates the new x and y coordinates of the moved points, interleaved
+     */
+    private SpatialIndex(int[] points, int[] coordinates, int[] moved, int[] movedCoordinates) {
+        this.points = points;
+        this.coordinates = coordinates;
+        this.moved = moved;
+        this.movedCoordinates = movedCoordinates;
+    }
+
+    /**
+     * Creates the index of the given points, which are identified by their position in the given arrays.
+     *
+     * @param xs the x coordinates of the points
+     * @param ys the y coordinates of the points
+     * @return the index of the given points
+     */
+    public static SpatialIndex of(@NotNull int[] xs, @NotNull int[] ys) {
+        var points = new int[xs.length];
+        var coordinates = new int[xs.length * 2];
+        for (int i = 0; i < xs.length; i++) {
+            points[i] = i;
+            coordinates[2 * i] = xs[i];
+            coordinates[2 * i + 1] = ys[i];
+        }
+        var index = new SpatialIndex(points, coordinates, new int[0], new int[0]);
+        index.sort(0, points.length - 1, 0);
+        return index;
+    }
+
+    /**
+     * Returns the number of points.
+     *
+     * @return the number of points
+     */
+    public int size() {
+        return points.length;
+    }
+
+    /**
+     * Returns the number of points moved since the tree was built.
+     *
+     * @return the number of moved points
+     */
+    public int moved() {
+        return moved.length;
+    }
+
+    /**
+     * Returns a copy of this index where the given point has been moved to the given coordinates. This index is not
+     * modified and shares the tree with the copy.
+     *
+     * @param point the point
+     * @param x     the new x coordinate
+     * @param y     the new y coordinate
+     * @return the changed copy of this index
+     */
+    public SpatialIndex move(int point, int x, int y) {
+        var i = Arrays.binarySearch(moved, point);
+        int[] changedPoints;
+        int[] changedCoordinates;
+        if (i >= 0) {
+            changedPoints = moved;
+            changedCoordinates = movedCoordinates.clone();
+        } else {
+            i = -i - 1;
+            changedPoints = new int[moved.length + 1];
+            System.arraycopy(moved, 0, changedPoints, 0, i);
+            changedPoints[i] = point;
+            System.arraycopy(moved, i, changedPoints, i + 1, moved.length - i);
+            changedCoordinates = new int[movedCoordinates.length + 2];
+            System.arraycopy(movedCoordinates, 0, changedCoordinates, 0, 2 * i);
+            System.arraycopy(movedCoordinates, 2 * i, changedCoordinates, 2 * i + 2, movedCoordinates.length - 2 * i);
+        }
+        changedCoordinates[2 * i] = x;
+        changedCoordinates[2 * i + 1] = y;
+        return new SpatialIndex(points, coordinates, changedPoints, changedCoordinates);
+    }
+
+    /**
+     * Returns the points inside the given rectangle, borders included.
+     *
+     * @param minX the minimum x coordinate
+     * @param minY the minimum y coordinate
+     * @param maxX the maximum x coordinate
+     * @param maxY the maximum y coordinate
+     * @return the points inside the given rectangle, sorted
+     */
+    public int[] range(int minX, int minY, int maxX, int maxY) {
+        var result = new int[16];
+        var size = 0;
+        var stack = new int[96];
+        var top = 0;
+        if (points.length > 0) {
+            stack[top++] = 0;
+            stack[top++] = points.length - 1;
+            stack[top++] = 0;
+        }
+
+        while (top > 0) {
+            var axis = stack[--top];
+            var right = stack[--top];
+            var left = stack[--top];
+
+            if (right - left <= LEAF_SIZE) {
+                for (int i = left; i <= right; i++) {
+                    if (inside(i, minX, minY, maxX, maxY) && !isMoved(points[i])) {
+                        if (size == result.length) {
+                            result = Arrays.copyOf(result, size * 2);
+                        }
+                        result[size++] = points[i];
+                    }
+                }
+                continue;
+            }
+
+            var middle = (left + right) >>> 1;
+            if (inside(middle, minX, minY, maxX, maxY) && !isMoved(points[middle])) {
+                if (size == result.length) {
+                    result = Arrays.copyOf(result, size * 2);
+                }
+                result[size++] = points[middle];
+            }
+
+            var value = coordinates[2 * middle + axis];
+            if (stack.length < top + 6) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            if ((axis == 0 ? minX : minY) <= value) {
+                stack[top++] = left;
+                stack[top++] = middle - 1;
+                stack[top++] = 1 - axis;
+            }
+            if ((axis == 0 ? maxX : maxY) >= value) {
+                stack[top++] = middle + 1;
+                stack[top++] = right;
+                stack[top++] = 1 - axis;
+            }
+        }
+
+        for (int i = 0; i < moved.length; i++) {
+            var x = movedCoordinates[2 * i];
+            var y = movedCoordinates[2 * i + 1];
+            if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                if (size == result.length) {
+                    result = Arrays.copyOf(result, size * 2);
+                }
+                result[size++] = moved[i];
+            }
+        }
+
+        var found = Arrays.copyOf(result, size);
+        Arrays.sort(found);
+        return found;
+    }
+
+    /**
+     * Returns whether the given point has been moved since the tree was built.
+     *
+     * @param point the point
+     * @return {@code true} if the given point has been moved
+     */
+    private boolean isMoved(int point) {
+        return moved.length > 0 && Arrays.binarySearch(moved, point) >= 0;
+    }
+
+    /**
+     * Returns whether the point at the given position is inside the given rectangle.
+     *
+     * @param i    the position
+     * @param minX the minimum x coordinate
+     * @param minY the minimum y coordinate
+     * @param maxX the maximum x coordinate
+     * @param maxY the maximum y coordinate
+     * @return {@code true} if the point is inside the given rectangle
+     */
+    private boolean inside(int i, int minX, int minY, int maxX, int maxY) {
+        var x = coordinates[2 * i];
+        var y = coordinates[2 * i + 1];
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+
+    /**
+     * Sorts the points between the given positions as a k-d tree, splitting them by the given axis first.
+     *
+     * @param left  the first position
+     * @param right the last position
+     * @param axis  0 to split by x, 1 to split by y
+     */
+    private void sort(int left, int right, int axis) {
+        if (right - left <= LEAF_SIZE) {
+            return;
+        }
+        var middle = (left + right) >>> 1;
+        select(middle, left, right, axis);
+        sort(left, middle - 1, 1 - axis);
+        sort(middle + 1, right, 1 - axis);
+    }
+
+    /**
+     * Rearranges the points between the given positions so that the k-th point is the one that would be there if
+     * they were sorted by the given axis, with no greater point before it and no smaller point after it. It uses the
+     * Floyd-Rivest selection algorithm.
+     *
+     * @param k     the position of the point to be selected
+     * @param left  the first position
+     * @param right the last position
+     * @param axis  0 to sort by x, 1 to sort by y
+     */
+    private void select(int k, int left, int right, int axis) {
+        while (right > left) {
+            if (right - left > 600) {
+                var n = right - left + 1;
+                var m = k - left + 1;
+                var z = Math.log(n);
+                var s = 0.5 * Math.exp(2 * z / 3);
+                var sd = 0.5 * Math.sqrt(z * s * (n - s) / n) * (m - n / 2.0 < 0 ? -1 : 1);
+                var newLeft = Math.max(left, (int) Math.floor(k - m * s / n + sd));
+                var newRight = Math.min(right, (int) Math.floor(k + (n - m) * s / n + sd));
+                select(k, newLeft, newRight, axis);
+            }
+
+            var t = coordinates[2 * k + axis];
+            var i = left;
+            var j = right;
+            swap(left, k);
+            if (coordinates[2 * right + axis] > t) {
+                swap(left, right);
+            }
+            while (i < j) {
+                swap(i, j);
+                i++;
+                j--;
+                while (coordinates[2 * i + axis] < t) {
+                    i++;
+                }
+                while (coordinates[2 * j + axis] > t) {
+                    j--;
+                }
+            }
+
+            if (coordinates[2 * left + axis] == t) {
+                swap(left, j);
+            } else {
+                j++;
+                swap(j, right);
+            }
+            if (j <= k) {
+                left = j + 1;
+            }
+            if (k <= j) {
+                right = j - 1;
+            }
+        }
+    }
+
+    /**
+     * Swaps the points at the given positions.
+     *
+     * @param i the first position
+     * @param j the second position
+     */
+    private void swap(int i, int j) {
+        var point = points[i];
+        points[i] = points[j];
+        points[j] = point;
+        var x = coordinates[2 * i];
+        coordinates[2 * i] = coordinates[2 * j];
+        coordinates[2 * j] = x;
+        var y = coordinates[2 * i + 1];
+        coordinates[2 * i + 1] = coordinates[2 * j + 1];
+        coordinates[2 * j + 1] = y;
+    }
+}
@@ -0,0 +1,89 @@
+package com.probendi.itgraph;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheableDataStatistics;
+
+/**
+ * Exposes the RESTful endpoints returning the statistics of the caches, so that they can be sized.
+ *
+ * @author Daniele Di Salvo
+ * @since 1.0.0
+ */
+@Path("/stats")
+@Produces(MediaType.APPLICATION_JSON)
+public class StatsResource {
+
+    @Inject
+    PrintoutCache printoutCache;
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    /**
+     * Explicit empty constructor.
+     */
+    public StatsResource() {
+    }
+
+    /**
+     * Returns the statistics of the printout cache.
+     *
+     * @return the statistics of the printout cache
+     */
+    @GET
+    @Path("/printouts")
+    public PrintoutCache.Stats getPrintoutStats() {
+        return printoutCache.getStats();
+    }
+
+    /**
+     * Returns the statistics of the second-level cache of nodes.
+     *
+     * @return the statistics of the second-level cache of nodes
+     */
+    @GET
+    @Path("/hibernate")
+    public HibernateStats getHibernateStats() {
+        var statistics = sessionFactory.getStatistics();
+        return new HibernateStats(
+                CacheStats.of(statistics.getEntityStatistics(Node.class.getName())),
+                statistics.getEntityLoadCount(),
+                statistics.getPrepareStatementCount());
+    }
+
+    /**
+     * The statistics of a region of the second-level cache.
+     *
+     * @param hits   the number of lookups that found the data in the cache
+     * @param misses the number of lookups that did not find the data in the cache
+     * @param puts   the number of times the data has been put in the cache
+     */
+    public record CacheStats(long hits, long misses, long puts) {
+
+        /**
+         * Returns the cache statistics of the given data.
+         *
+         * @param statistics the statistics of the data
+         * @return the cache statistics of the given data
+         */
+        static CacheStats of(CacheableDataStatistics statistics) {
+            return new CacheStats(statistics.getCacheHitCount(), statistics.getCacheMissCount(),
+                    statistics.getCachePutCount());
+        }
+    }
+
+    /**
+     * The statistics of the persistence provider.
+     *
+     * @param nodes       the statistics of the cached nodes
+     * @param entityLoads the number of entities loaded from the database
+     * @param statements  the number of statements prepared
+     */
+    public record HibernateStats(CacheStats nodes, long entityLoads, long statements) {
+    }
+}
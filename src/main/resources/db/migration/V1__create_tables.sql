@@ -0,0 +1,15 @@
+-- the tables as they were generated by Hibernate, which may have created them already
+CREATE TABLE IF NOT EXISTS nodes
+(
+    id   VARCHAR(255) NOT NULL PRIMARY KEY,
+    x    INTEGER      NOT NULL,
+    y    INTEGER      NOT NULL,
+    type VARCHAR(255) NOT NULL CHECK (type IN ('LEXEME', 'DIVISION', 'OPPOSITION'))
+);
+
+CREATE TABLE IF NOT EXISTS edges
+(
+    source VARCHAR(255) NOT NULL REFERENCES nodes (id),
+    target VARCHAR(255) NOT NULL REFERENCES nodes (id),
+    PRIMARY KEY (source, target)
+);
@@ -0,0 +1,18 @@
+-- edges are undirected, hence each edge is stored once, from the lesser to the greater id; ids are compared by
+-- code point, as done by the application, whatever the collation of the database
+INSERT INTO edges (source, target)
+SELECT target, source
+FROM edges
+WHERE source COLLATE "C" > target COLLATE "C"
+ON CONFLICT DO NOTHING;
+
+DELETE
+FROM edges
+WHERE source COLLATE "C" >= target COLLATE "C";
+
+ALTER TABLE edges
+    ADD CONSTRAINT edges_canonical CHECK (source COLLATE "C" < target COLLATE "C");
+
+-- the primary key covers the lookups by source, this index covers the lookups by target, so that the neighbours of a
+-- node are found with two index-only scans
+CREATE INDEX edges_target_source ON edges (target, source);
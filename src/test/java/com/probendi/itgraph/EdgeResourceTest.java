@@ -2,6 +2,7 @@ package com.probendi.itgraph;
 
 import io.quarkus.test.junit.QuarkusTest;
 import io.restassured.http.ContentType;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
@@ -9,8 +10,12 @@ import jakarta.ws.rs.core.Response;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+import java.util.Set;
+
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -20,6 +25,9 @@ class EdgeResourceTest {
     @PersistenceContext
     private EntityManager em;
 
+    @Inject
+    GraphStore store;
+
     private final Edge ab = new Edge("a", "b");
 
     private final Node b = new Node("b", 30, 40, NodeType.LEXEME);
@@ -33,6 +41,7 @@ class EdgeResourceTest {
         em.persist(a);
         em.persist(b);
         em.persist(c);
+        store.invalidate();
     }
 
     @Test
@@ -52,6 +61,88 @@ class EdgeResourceTest {
         assertTrue(graph.getEdges().contains(new Edge("b", "c")));
     }
 
+    @Test
+    public void create_delta() {
+        var delta = given()
+                .contentType(ContentType.JSON)
+                .when()
+                .post("/edges/b/c?delta=true")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .contentType(ContentType.JSON)
+                .log()
+                .body()
+                .extract()
+                .as(GraphDelta.class);
+
+        assertEquals(Set.of(new Edge("b", "c")), delta.getEdges());
+        assertTrue(delta.getNodes().isEmpty());
+        assertTrue(delta.getRevision() > 0);
+    }
+
+    @Test
+    public void create_delta_Reversed() {
+        var delta = given()
+                .contentType(ContentType.JSON)
+                .when()
+                .post("/edges/c/b?delta=true")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .contentType(ContentType.JSON)
+                .log()
+                .body()
+                .extract()
+                .as(GraphDelta.class);
+
+        var edge = delta.getEdges().iterator().next();
+        assertEquals("b", edge.source());
+        assertEquals("c", edge.target());
+        assertEquals(new Edge("c", "b").hashCode(), edge.hashCode());
+    }
+
+    @Test
+    public void create_Canonical() {
+        given()
+                .contentType(ContentType.JSON)
+                .when()
+                .post("/edges/c/b")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode());
+
+        var rows = em.createNativeQuery("SELECT e.source FROM edges AS e WHERE e.source IN ('b', 'c') " +
+                        "AND e.target IN ('b', 'c')", String.class)
+                .getResultList();
+        assertEquals(List.of("b"), rows);
+    }
+
+    @Test
+    public void create_Canonical_SupplementaryCharacter() {
+        // U+1F600 precedes U+E000 in UTF-16, but follows it by code point
+        var smiley = "\uD83D\uDE00";
+        var privateUse = "\uE000";
+        for (var id : List.of(smiley, privateUse)) {
+            given()
+                    .contentType(ContentType.JSON)
+                    .body(new Node(id, 0, 0, NodeType.LEXEME))
+                    .when()
+                    .post("/nodes")
+                    .then()
+                    .statusCode(Response.Status.OK.getStatusCode());
+        }
+
+        given()
+                .contentType(ContentType.JSON)
+                .when()
+                .post("/edges/{source}/{target}", smiley, privateUse)
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode());
+
+        var rows = em.createNativeQuery("SELECT e.source FROM edges AS e WHERE e.target = :target", String.class)
+                .setParameter("target", smiley)
+                .getResultList();
+        assertEquals(List.of(privateUse), rows);
+    }
+
     @Test
     public void create_BAD_REQUEST_SameSourceAndTarget() {
         given()
@@ -125,6 +216,38 @@ class EdgeResourceTest {
         assertFalse(graph.getEdges().contains(ab));
     }
 
+    @Test
+    public void delete_Reversed() {
+        var delta = given()
+                .contentType(ContentType.JSON)
+                .when()
+                .delete("/edges/b/a?delta=true")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .contentType(ContentType.JSON)
+                .log()
+                .body()
+                .extract()
+                .as(GraphDelta.class);
+
+        assertEquals(Set.of(ab), delta.getDeletedEdges());
+        assertFalse(store.current().getGraph().getEdges().contains(ab));
+    }
+
+    @Test
+    public void delete_BAD_REQUEST_SourceNotFound() {
+        given()
+                .contentType(ContentType.JSON)
+                .when()
+                .delete("/edges/not-found/a")
+                .then()
+                .statusCode(Response.Status.BAD_REQUEST.getStatusCode())
+                .contentType(ContentType.JSON)
+                .log()
+                .body()
+                .body(is("{\"message\":\"BAD_REQUEST\",\"details\":\"Source not found\"}"));
+    }
+
     @Test
     public void delete_NOT_FOUND() {
         given()
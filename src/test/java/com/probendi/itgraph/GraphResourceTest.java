@@ -1,21 +1,33 @@
 package com.probendi.itgraph;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.test.common.http.TestHTTPResource;
 import io.quarkus.test.junit.QuarkusTest;
 import io.restassured.http.ContentType;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInfo;
 
 import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static io.restassured.RestAssured.given;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.startsWith;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -48,19 +60,29 @@ class GraphResourceTest {
     @PersistenceContext
     private EntityManager em;
 
+    @TestHTTPResource("/graph/changes")
+    URI changes;
+
+    @Inject
+    ChangeFeed feed;
+
     @Inject
     GraphService graphService;
 
+    @Inject
+    GraphStore store;
+
     @BeforeEach
     @Transactional
     public void setup(TestInfo testInfo) throws IOException {
         em.createNativeQuery("delete from edges").executeUpdate();
         em.createNativeQuery("delete from nodes").executeUpdate();
+        // the database is modified behind the back of the store
+        store.invalidate();
 
         if (testInfo.getDisplayName().contains("stringifyGraph")) {
             try (var is = getClass().getClassLoader().getResourceAsStream("actus-potentia.json")) {
-                var graph = new ObjectMapper().readValue(is, Graph.class);
-                graphService.uploadGraph(graph);
+                graphService.uploadGraph(is);
             }
             return;
         }
@@ -115,6 +137,364 @@ class GraphResourceTest {
         assertEquals(graph, actualGraph);
     }
 
+    @Test
+    public void getGraph_NOT_MODIFIED() {
+        var tag = given()
+                .when()
+                .get("/graph")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .extract()
+                .header(HttpHeaders.ETAG);
+
+        given()
+                .header(HttpHeaders.IF_NONE_MATCH, tag)
+                .when()
+                .get("/graph")
+                .then()
+                .statusCode(Response.Status.NOT_MODIFIED.getStatusCode());
+
+        given()
+                .when()
+                .delete("/nodes/india")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode());
+
+        given()
+                .header(HttpHeaders.IF_NONE_MATCH, tag)
+                .when()
+                .get("/graph")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .header(HttpHeaders.ETAG, not(tag));
+    }
+
+    @Test
+    public void getChanges_replay() {
+        var tag = given()
+                .when()
+                .get("/graph")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .extract()
+                .header(HttpHeaders.ETAG);
+
+        assertEquals(0, feed.replay(tag).orElseThrow().size());
+
+        given()
+                .when()
+                .delete("/nodes/india")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode());
+        given()
+                .when()
+                .post("/edges/bravo/charlie")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode());
+
+        var deltas = feed.replay(tag).orElseThrow();
+        assertEquals(2, deltas.size());
+        assertEquals(Set.of("india"), deltas.get(0).getDeletedNodes());
+        assertEquals(Set.of(new Edge("bravo", "charlie")), deltas.get(1).getEdges());
+        assertEquals(deltas.get(0).getRevision() + 1, deltas.get(1).getRevision());
+    }
+
+    @Test
+    public void getChanges_CurrentTag() throws Exception {
+        var tag = given()
+                .when()
+                .get("/graph")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .extract()
+                .header(HttpHeaders.ETAG);
+
+        var client = HttpClient.newHttpClient();
+        try {
+            var request = HttpRequest.newBuilder(URI.create(changes + "?since=" + URLEncoder.encode(tag, UTF_8)))
+                    .header(HttpHeaders.ACCEPT, MediaType.SERVER_SENT_EVENTS)
+                    .build();
+            var response = client.sendAsync(request, HttpResponse.BodyHandlers.ofLines());
+
+            given()
+                    .when()
+                    .delete("/nodes/india")
+                    .then()
+                    .statusCode(Response.Status.OK.getStatusCode());
+
+            // a client that is up to date is not told to reload the graph, but is sent the next change
+            var event = response.thenApply(lines -> lines.body()
+                            .filter(line -> line.startsWith("event:"))
+                            .findFirst()
+                            .orElseThrow())
+                    .get(10, TimeUnit.SECONDS);
+            assertEquals("delta", event.substring("event:".length()).trim());
+        } finally {
+            client.shutdownNow();
+        }
+    }
+
+    @Test
+    public void getChanges_replay_Unknown() {
+        assertTrue(feed.replay("unknown-1").isEmpty());
+        assertTrue(feed.replay("garbage").isEmpty());
+    }
+
+    @Test
+    public void getNeighbourhood() {
+        var neighbourhood = given()
+                .when()
+                .get("/graph/neighbourhood/delta")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .contentType(ContentType.JSON)
+                .log()
+                .body()
+                .extract().as(Graph.class);
+
+        var expected = new Graph()
+                .setNodes(Set.of(new Node("ens", 0, 0, NodeType.LEXEME),
+                        new Node("delta", 30, 30, NodeType.DIVISION),
+                        new Node("fox trot", 50, 50, NodeType.LEXEME),
+                        new Node("golf", 60, 60, NodeType.DIVISION)))
+                .setEdges(Set.of(new Edge("ens", "delta"),
+                        new Edge("delta", "fox trot"),
+                        new Edge("delta", "golf")));
+        assertEquals(expected, neighbourhood);
+    }
+
+    @Test
+    public void getNeighbourhood_Types() {
+        var neighbourhood = given()
+                .when()
+                .get("/graph/neighbourhood/ens?depth=3&types=DIVISION")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .contentType(ContentType.JSON)
+                .log()
+                .body()
+                .extract().as(Graph.class);
+
+        var expected = new Graph()
+                .setNodes(Set.of(new Node("ens", 0, 0, NodeType.LEXEME),
+                        new Node("delta", 30, 30, NodeType.DIVISION),
+                        new Node("golf", 60, 60, NodeType.DIVISION)))
+                .setEdges(Set.of(new Edge("ens", "delta"), new Edge("delta", "golf")));
+        assertEquals(expected, neighbourhood);
+    }
+
+    @Test
+    public void getNeighbourhood_BAD_REQUEST() {
+        given()
+                .when()
+                .get("/graph/neighbourhood/ens?depth=-1")
+                .then()
+                .statusCode(Response.Status.BAD_REQUEST.getStatusCode())
+                .contentType(ContentType.JSON)
+                .log()
+                .body()
+                .body(is("{\"message\":\"BAD_REQUEST\",\"details\":\"depth must not be negative\"}"));
+    }
+
+    @Test
+    public void getNeighbourhood_NOT_FOUND() {
+        given()
+                .when()
+                .get("/graph/neighbourhood/not-found")
+                .then()
+                .statusCode(Response.Status.NOT_FOUND.getStatusCode());
+    }
+
+    @Test
+    public void getNeighbourhood_NOT_FOUND_CurrentTag() {
+        given()
+                .header(HttpHeaders.IF_NONE_MATCH, currentTag())
+                .when()
+                .get("/graph/neighbourhood/not-found")
+                .then()
+                .statusCode(Response.Status.NOT_FOUND.getStatusCode());
+    }
+
+    @Test
+    public void getViewport() {
+        var viewport = given()
+                .when()
+                .get("/graph/viewport?minX=0&minY=0&maxX=35&maxY=35")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .contentType(ContentType.JSON)
+                .log()
+                .body()
+                .extract().as(Graph.class);
+
+        var expected = new Graph()
+                .setNodes(Set.of(new Node("ens", 0, 0, NodeType.LEXEME),
+                        new Node("bravo", 10, 10, NodeType.LEXEME),
+                        new Node("charlie", 20, 20, NodeType.LEXEME),
+                        new Node("delta", 30, 30, NodeType.DIVISION)))
+                .setEdges(Set.of(new Edge("ens", "bravo"),
+                        new Edge("ens", "charlie"),
+                        new Edge("ens", "delta"),
+                        new Edge("ens", "echo"),
+                        new Edge("delta", "fox trot"),
+                        new Edge("delta", "golf")));
+        assertEquals(expected, viewport);
+    }
+
+    @Test
+    public void getViewport_Moved() {
+        // builds the indexes of the current snapshot, which are carried forward by the move
+        given()
+                .when()
+                .get("/graph/viewport?minX=0&minY=0&maxX=35&maxY=35")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode());
+        given()
+                .contentType(ContentType.JSON)
+                .body(new Node("bravo", 1000, 1000, NodeType.LEXEME))
+                .when()
+                .put("/nodes/bravo?delta=true")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode());
+
+        var viewport = given()
+                .when()
+                .get("/graph/viewport?minX=0&minY=0&maxX=35&maxY=35")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .extract().as(Graph.class);
+        assertTrue(viewport.getNodes().stream().noneMatch(node -> node.getId().equals("bravo")));
+
+        viewport = given()
+                .when()
+                .get("/graph/viewport?minX=990&minY=990&maxX=1010&maxY=1010")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .extract().as(Graph.class);
+        var expected = new Graph()
+                .setNodes(Set.of(new Node("bravo", 1000, 1000, NodeType.LEXEME)))
+                .setEdges(Set.of(new Edge("ens", "bravo")));
+        assertEquals(expected, viewport);
+    }
+
+    @Test
+    public void getViewport_BAD_REQUEST() {
+        given()
+                .when()
+                .get("/graph/viewport?minX=10&minY=0&maxX=0&maxY=10")
+                .then()
+                .statusCode(Response.Status.BAD_REQUEST.getStatusCode())
+                .contentType(ContentType.JSON)
+                .log()
+                .body()
+                .body(is("{\"message\":\"BAD_REQUEST\",\"details\":" +
+                        "\"minX and minY must not be greater than maxX and maxY\"}"));
+    }
+
+    @Test
+    public void patchGraph() {
+        var juliet = new Node("juliet", 90, 90, NodeType.LEXEME);
+        var india = new Node("india", 85, 85, NodeType.LEXEME);
+        var patch = new GraphPatch()
+                .setCreatedNodes(Set.of(juliet))
+                .setUpdatedNodes(Set.of(india))
+                .setRemovedEdges(Set.of(new Edge("golf", "india")))
+                .setAddedEdges(Set.of(new Edge("juliet", "golf")))
+                .setDeletedNodes(Set.of("echo"));
+
+        var delta = given()
+                .contentType(ContentType.JSON)
+                .body(patch)
+                .when()
+                .patch("/graph")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .contentType(ContentType.JSON)
+                .log()
+                .body()
+                .extract()
+                .as(GraphDelta.class);
+
+        assertEquals(Set.of(juliet, india), delta.getNodes());
+        assertEquals(Set.of("echo"), delta.getDeletedNodes());
+        assertEquals(Set.of(new Edge("golf", "juliet")), delta.getEdges());
+        assertEquals(Set.of(new Edge("golf", "india"), new Edge("ens", "echo")), delta.getDeletedEdges());
+
+        var graph = given()
+                .when()
+                .get("/graph")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .extract()
+                .as(Graph.class);
+
+        assertTrue(graph.getNodes().contains(juliet));
+        assertTrue(graph.getNodes().stream().anyMatch(node -> node.getId().equals("india") && node.getX() == 85));
+        assertTrue(graph.getEdges().contains(new Edge("juliet", "golf")));
+        assertTrue(graph.getNodes().stream().noneMatch(node -> node.getId().equals("echo")));
+        assertTrue(graph.getEdges().stream().noneMatch(edge -> edge.equals(new Edge("golf", "india"))));
+    }
+
+    @Test
+    public void patchGraph_BAD_REQUEST() {
+        var patch = new GraphPatch()
+                .setCreatedNodes(Set.of(new Node("juliet", 90, 90, NodeType.LEXEME)))
+                .setDeletedNodes(Set.of("not-found"));
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(patch)
+                .when()
+                .patch("/graph")
+                .then()
+                .statusCode(Response.Status.BAD_REQUEST.getStatusCode())
+                .contentType(ContentType.JSON)
+                .log()
+                .body()
+                .body(is("{\"message\":\"BAD_REQUEST\",\"details\":\"Node not found\"}"));
+
+        // the whole patch has been rolled back
+        var graph = given()
+                .when()
+                .get("/graph")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .extract()
+                .as(Graph.class);
+        assertEquals(GraphResourceTest.graph, graph);
+    }
+
+    @Test
+    public void patchGraph_BAD_REQUEST_MissingId() {
+        given()
+                .contentType(ContentType.JSON)
+                .body("{\"createdNodes\":[{\"x\":90,\"y\":90,\"type\":\"LEXEME\"}," +
+                        "{\"id\":\"juliet\",\"x\":90,\"y\":90,\"type\":\"LEXEME\"}]}")
+                .when()
+                .patch("/graph")
+                .then()
+                .statusCode(Response.Status.BAD_REQUEST.getStatusCode())
+                .contentType(ContentType.JSON)
+                .log()
+                .body()
+                .body(is("{\"message\":\"BAD_REQUEST\",\"details\":\"id must not be blank\"}"));
+    }
+
+    @Test
+    public void patchGraph_BAD_REQUEST_MissingSource() {
+        given()
+                .contentType(ContentType.JSON)
+                .body("{\"addedEdges\":[{\"target\":\"golf\"},{\"source\":\"ens\",\"target\":\"golf\"}]}")
+                .when()
+                .patch("/graph")
+                .then()
+                .statusCode(Response.Status.BAD_REQUEST.getStatusCode())
+                .contentType(ContentType.JSON)
+                .log()
+                .body()
+                .body(is("{\"message\":\"BAD_REQUEST\",\"details\":\"source must not be blank\"}"));
+    }
+
     @Test
     public void uploadGraph() {
         var a = new Node("a", 100, 200, NodeType.OPPOSITION);
@@ -147,6 +527,143 @@ class GraphResourceTest {
         assertEquals(graph, actualGraph);
     }
 
+    @Test
+    public void uploadGraph_BAD_REQUEST() {
+        var json = """
+                {"nodes":[{"id":"a","x":0,"y":0,"type":"LEXEME"}],"edges":[{"source":"a","target":"z"}]}""";
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(json)
+                .when()
+                .put("/graph")
+                .then()
+                .statusCode(Response.Status.BAD_REQUEST.getStatusCode())
+                .body(is("{\"message\":\"BAD_REQUEST\",\"details\":\"Target not found\"}"));
+
+        // the current graph is replaced only if the whole upload succeeds
+        var actualGraph = given()
+                .when()
+                .get("/graph")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .extract()
+                .as(Graph.class);
+        assertEquals(graph, actualGraph);
+    }
+
+    @Test
+    public void uploadGraph_EdgesFirst() {
+        var json = """
+                {"edges":[{"source":"b","target":"a"}],"nodes":[{"id":"a","x":1,"y":2,"type":"OPPOSITION"},\
+                {"id":"b","x":3,"y":4,"type":"LEXEME"}]}""";
+
+        var actualGraph = given()
+                .contentType(ContentType.JSON)
+                .body(json)
+                .when()
+                .put("/graph")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .contentType(ContentType.JSON)
+                .log()
+                .body()
+                .extract()
+                .as(Graph.class);
+
+        var expected = new Graph()
+                .setNodes(Set.of(new Node("a", 1, 2, NodeType.OPPOSITION), new Node("b", 3, 4, NodeType.LEXEME)))
+                .setEdges(Set.of(new Edge("a", "b")));
+        assertEquals(expected, actualGraph);
+    }
+
+    @Test
+    public void uploadGraph_Chunked() {
+        // a chain of nodes, whose edges come first and span several chunks
+        var size = 2 * NodeRepository.BATCH_SIZE + 1;
+        var json = new StringBuilder("{\"edges\":[");
+        for (int i = 1; i < size; i++) {
+            json.append(i > 1 ? "," : "")
+                    .append("{\"source\":\"n").append(i - 1).append("\",\"target\":\"n").append(i).append("\"}");
+        }
+        json.append("],\"nodes\":[");
+        for (int i = 0; i < size; i++) {
+            json.append(i > 0 ? "," : "")
+                    .append("{\"id\":\"n").append(i).append("\",\"x\":").append(i).append(",\"y\":0,")
+                    .append("\"type\":\"LEXEME\"}");
+        }
+        json.append("]}");
+
+        var actualGraph = given()
+                .contentType(ContentType.JSON)
+                .body(json.toString())
+                .when()
+                .put("/graph")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .extract()
+                .as(Graph.class);
+
+        assertEquals(size, actualGraph.getNodes().size());
+        assertEquals(size - 1, actualGraph.getEdges().size());
+        assertTrue(actualGraph.getEdges().contains(new Edge("n" + (size - 2), "n" + (size - 1))));
+    }
+
+    @Test
+    public void uploadGraph_BAD_REQUEST_Malformed() {
+        given()
+                .contentType(ContentType.JSON)
+                .body("{\"nodes\":[{\"id\":\"a\"")
+                .when()
+                .put("/graph")
+                .then()
+                .statusCode(Response.Status.BAD_REQUEST.getStatusCode())
+                .contentType(ContentType.JSON)
+                .log()
+                .body()
+                .body("details", startsWith("Malformed graph"));
+    }
+
+    @Test
+    public void uploadGraph_BAD_REQUEST_InvalidType() {
+        given()
+                .contentType(ContentType.JSON)
+                .body("{\"nodes\":[{\"id\":\"a\",\"x\":0,\"y\":0,\"type\":\"UNKNOWN\"}]}")
+                .when()
+                .put("/graph")
+                .then()
+                .statusCode(Response.Status.BAD_REQUEST.getStatusCode())
+                .contentType(ContentType.JSON)
+                .log()
+                .body()
+                .body(is("{\"message\":\"BAD_REQUEST\",\"details\":\"Invalid type: UNKNOWN\"}"));
+    }
+
+    @Test
+    public void uploadGraph_BAD_REQUEST_MissingId() {
+        given()
+                .contentType(ContentType.JSON)
+                .body("{\"nodes\":[{\"x\":0,\"y\":0,\"type\":\"LEXEME\"}]}")
+                .when()
+                .put("/graph")
+                .then()
+                .statusCode(Response.Status.BAD_REQUEST.getStatusCode())
+                .contentType(ContentType.JSON)
+                .log()
+                .body()
+                .body(is("{\"message\":\"BAD_REQUEST\",\"details\":\"id must not be blank\"}"));
+
+        // the current graph is replaced only if the whole upload succeeds
+        var actualGraph = given()
+                .when()
+                .get("/graph")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .extract()
+                .as(Graph.class);
+        assertEquals(graph, actualGraph);
+    }
+
     @Test
     public void stringifyGraph() {
         var expected = """
@@ -205,6 +722,41 @@ class GraphResourceTest {
         assertEquals(expected, actual);
     }
 
+    @Test
+    public void printoutCache() {
+        var hits = given()
+                .when()
+                .get("/stats/printouts")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .extract()
+                .jsonPath()
+                .getLong("hits");
+
+        var first = given()
+                .when()
+                .get("/graph/printout/ens")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .extract()
+                .asString();
+        var second = given()
+                .when()
+                .get("/graph/printout/ens")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .extract()
+                .asString();
+        assertEquals(first, second);
+
+        given()
+                .when()
+                .get("/stats/printouts")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .body("hits", is((int) hits + 1));
+    }
+
     @Test
     public void generatePrintoutNotFound() {
         given()
@@ -213,4 +765,24 @@ class GraphResourceTest {
                 .then()
                 .statusCode(Response.Status.NOT_FOUND.getStatusCode());
     }
+
+    @Test
+    public void generatePrintoutNotFound_CurrentTag() {
+        given()
+                .header(HttpHeaders.IF_NONE_MATCH, currentTag())
+                .when()
+                .get("/graph/printout/not-found")
+                .then()
+                .statusCode(Response.Status.NOT_FOUND.getStatusCode());
+    }
+
+    private String currentTag() {
+        return given()
+                .when()
+                .get("/graph")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .extract()
+                .header(HttpHeaders.ETAG);
+    }
 }
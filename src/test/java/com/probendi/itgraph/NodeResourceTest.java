@@ -2,6 +2,7 @@ package com.probendi.itgraph;
 
 import io.quarkus.test.junit.QuarkusTest;
 import io.restassured.http.ContentType;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
@@ -9,8 +10,15 @@ import jakarta.ws.rs.core.Response;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -20,6 +28,9 @@ class NodeResourceTest {
     @PersistenceContext
     private EntityManager em;
 
+    @Inject
+    GraphStore store;
+
     private final Edge ab = new Edge("a", "b");
     private final Edge ac = new Edge("a", "c");
 
@@ -34,6 +45,7 @@ class NodeResourceTest {
         em.persist(a);
         em.persist(b);
         em.persist(c);
+        store.invalidate();
     }
 
     @Test
@@ -56,6 +68,66 @@ class NodeResourceTest {
         assertTrue(graph.getNodes().contains(a));
     }
 
+    @Test
+    public void create_delta() {
+        var a = new Node("new-node", 0, 0, NodeType.LEXEME);
+
+        var delta = given()
+                .contentType(ContentType.JSON)
+                .body(a)
+                .when()
+                .post("/nodes?delta=true")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .contentType(ContentType.JSON)
+                .log()
+                .body()
+                .extract()
+                .as(GraphDelta.class);
+
+        assertEquals(Set.of(a), delta.getNodes());
+        assertTrue(delta.getEdges().isEmpty());
+        assertTrue(delta.getRevision() > 0);
+    }
+
+    @Test
+    public void create_cached() {
+        var a = new Node("new-node", 0, 0, NodeType.LEXEME);
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(a)
+                .when()
+                .post("/nodes")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode());
+
+        var hits = given()
+                .when()
+                .get("/stats/hibernate")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .extract()
+                .jsonPath()
+                .getLong("nodes.hits");
+
+        // the duplicate check finds the node in the second-level cache
+        given()
+                .contentType(ContentType.JSON)
+                .body(a)
+                .when()
+                .post("/nodes")
+                .then()
+                .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
+
+        given()
+                .when()
+                .get("/stats/hibernate")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .body("nodes.hits", is((int) hits + 1));
+    }
+
     @Test
     public void create_BAD_REQUEST() {
         var a = new Node("a", 0, 0, NodeType.LEXEME);
@@ -114,6 +186,25 @@ class NodeResourceTest {
         assertTrue(graph.getEdges().contains(ac));
     }
 
+    @Test
+    public void delete_a_delta() {
+        var delta = given()
+                .contentType(ContentType.JSON)
+                .when()
+                .delete("/nodes/a?delta=true")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .contentType(ContentType.JSON)
+                .log()
+                .body()
+                .extract()
+                .as(GraphDelta.class);
+
+        assertEquals(Set.of("a"), delta.getDeletedNodes());
+        assertEquals(Set.of(ab, ac), delta.getDeletedEdges());
+        assertTrue(delta.getNodes().isEmpty());
+    }
+
     @Test
     public void delete_NOT_FOUND() {
         given()
@@ -149,6 +240,39 @@ class NodeResourceTest {
         assertTrue(graph.getEdges().contains(ac));
     }
 
+    @Test
+    public void update_Concurrent() throws Exception {
+        var executor = Executors.newFixedThreadPool(8);
+        try {
+            var updates = new ArrayList<Future<?>>();
+            for (int i = 0; i < 200; i++) {
+                var node = new Node(i % 2 == 0 ? "a" : "b", i, i, i % 2 == 0 ? NodeType.OPPOSITION : NodeType.LEXEME);
+                updates.add(executor.submit(() -> given()
+                        .contentType(ContentType.JSON)
+                        .body(node)
+                        .when()
+                        .put("/nodes/" + node.getId() + "?delta=true")
+                        .then()
+                        .statusCode(Response.Status.OK.getStatusCode())));
+            }
+            for (var update : updates) {
+                update.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // the snapshot must hold the updates committed last, whatever the order the requests completed in
+        for (var id : List.of("a", "b")) {
+            var row = (Object[]) em.createNativeQuery("SELECT x, y FROM nodes WHERE id = :id")
+                    .setParameter("id", id)
+                    .getSingleResult();
+            var node = store.current().findNode(id).orElseThrow();
+            assertEquals(((Number) row[0]).intValue(), node.getX());
+            assertEquals(((Number) row[1]).intValue(), node.getY());
+        }
+    }
+
     @Test
     public void update_BAD_REQUEST() {
         var a = new Node("a", 0, 0, NodeType.LEXEME);
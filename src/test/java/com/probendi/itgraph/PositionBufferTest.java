@@ -0,0 +1,150 @@
+package com.probendi.itgraph;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.restassured.http.ContentType;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@QuarkusTest
+@TestProfile(PositionBufferTest.Buffered.class)
+class PositionBufferTest {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Inject
+    GraphStore store;
+
+    @Inject
+    PositionBuffer buffer;
+
+    @Inject
+    NodeService nodeService;
+
+    private final Node b = new Node("b", 30, 40, NodeType.LEXEME);
+    private final Node a = new Node("a", 10, 20, NodeType.OPPOSITION).addEdge(b);
+    private Future<?> flushing;
+
+    @BeforeEach
+    @Transactional
+    public void setup() {
+        em.createQuery("delete from Node").executeUpdate();
+        em.persist(a);
+        em.persist(b);
+        store.invalidate();
+    }
+
+    @Test
+    public void update_buffered() {
+        move("a", 1, 1);
+        move("a", 2, 2);
+
+        var graph = given().when().get("/graph").then().extract().as(Graph.class);
+        var moved = graph.getNodes().stream().filter(node -> node.getId().equals("a")).findFirst().orElseThrow();
+        assertEquals(2, moved.getX());
+        assertEquals(2, moved.getY());
+        assertEquals(10, position("a")[0]);
+
+        buffer.flush();
+
+        assertEquals(2, position("a")[0]);
+        assertEquals(2, position("a")[1]);
+    }
+
+    @Test
+    public void update_superseded() {
+        move("a", 1, 1);
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(new Node("a", 5, 5, NodeType.DIVISION))
+                .when()
+                .put("/nodes/a")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode());
+        buffer.flush();
+
+        assertEquals(5, position("a")[0]);
+        assertEquals(5, position("a")[1]);
+    }
+
+    @Test
+    public void update_supersededWhileFlushing() throws Exception {
+        move("a", 1, 1);
+
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            QuarkusTransaction.requiringNew().run(() -> {
+                nodeService.updateNode(new Node("a", 5, 5, NodeType.DIVISION));
+                // the flush waits for the row of the node, which is locked until this transaction is committed
+                flushing = executor.submit(buffer::flush);
+                sleep();
+            });
+            flushing.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(5, position("a")[0]);
+        assertEquals(5, position("a")[1]);
+    }
+
+    @Test
+    public void update_NOT_FOUND() {
+        given()
+                .contentType(ContentType.JSON)
+                .body(new Node("z", 0, 0, NodeType.LEXEME))
+                .when()
+                .put("/nodes/z")
+                .then()
+                .statusCode(Response.Status.NOT_FOUND.getStatusCode());
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(500);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void move(String id, int x, int y) {
+        given()
+                .contentType(ContentType.JSON)
+                .body(new Node(id, x, y, NodeType.OPPOSITION))
+                .when()
+                .put("/nodes/" + id + "?delta=true")
+                .then()
+                .statusCode(Response.Status.OK.getStatusCode());
+    }
+
+    private int[] position(String id) {
+        var row = (Object[]) em.createNativeQuery("SELECT x, y FROM nodes WHERE id = :id")
+                .setParameter("id", id)
+                .getSingleResult();
+        return new int[]{((Number) row[0]).intValue(), ((Number) row[1]).intValue()};
+    }
+
+    public static class Buffered implements QuarkusTestProfile {
+
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("it-graph.positions.buffered", "true", "it-graph.positions.flush-interval", "1h");
+        }
+    }
+}
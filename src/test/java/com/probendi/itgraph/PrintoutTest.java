@@ -0,0 +1,103 @@
+package com.probendi.itgraph;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.FutureTask;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PrintoutTest {
+
+    @Test
+    public void size() {
+        var graph = new Graph()
+                .setNodes(Set.of(new Node("ens", 0, 0, NodeType.LEXEME),
+                        new Node("bravo", 0, 0, NodeType.LEXEME),
+                        new Node("charlie", 0, 0, NodeType.LEXEME),
+                        new Node("delta", 0, 0, NodeType.DIVISION),
+                        new Node("echo", 0, 0, NodeType.LEXEME),
+                        new Node("fox trot", 0, 0, NodeType.LEXEME),
+                        new Node("golf", 0, 0, NodeType.OPPOSITION),
+                        new Node("hotel", 0, 0, NodeType.LEXEME),
+                        new Node("india", 0, 0, NodeType.LEXEME)))
+                .setEdges(Set.of(new Edge("ens", "bravo"),
+                        new Edge("ens", "charlie"),
+                        new Edge("ens", "delta"),
+                        new Edge("ens", "echo"),
+                        new Edge("delta", "fox trot"),
+                        new Edge("delta", "golf"),
+                        new Edge("golf", "hotel"),
+                        new Edge("golf", "india"),
+                        // lexemes linked to other lexemes, the first one to more than one
+                        new Edge("charlie", "echo"),
+                        new Edge("charlie", "hotel")));
+        var snapshot = GraphSnapshot.of(0, graph);
+
+        for (var node : graph.getNodes()) {
+            var text = Printout.of(snapshot, node.getId()).orElseThrow().toString();
+            // the size is measured without generating the printout
+            assertEquals(text.length(), Printout.of(snapshot, node.getId()).orElseThrow().size());
+        }
+    }
+
+    @Test
+    public void generatePrintout_DeepChain() throws Exception {
+        // every level adds a counter to the lines below it, so the printout grows with the square of the depth
+        var depth = 20_000;
+        var nodes = new HashSet<Node>();
+        var edges = new HashSet<Edge>();
+        nodes.add(new Node("root", 0, 0, NodeType.LEXEME));
+        var previous = "root";
+        for (int i = 0; i < depth; i++) {
+            var id = "level " + i;
+            nodes.add(new Node(id, 0, 0, i % 2 == 0 ? NodeType.DIVISION : NodeType.OPPOSITION));
+            edges.add(new Edge(previous, id));
+            previous = id;
+        }
+        nodes.add(new Node("leaf", 0, 0, NodeType.LEXEME));
+        edges.add(new Edge(previous, "leaf"));
+        var printout = Printout.of(GraphSnapshot.of(0, new Graph().setNodes(nodes).setEdges(edges)), "root")
+                .orElseThrow();
+
+        // a recursive traversal would overflow such a small stack long before reaching the leaf
+        var lines = new long[1];
+        var task = new FutureTask<Void>(() -> {
+            printout.writeTo(new Writer() {
+
+                @Override
+                public void write(char[] buffer, int offset, int length) {
+                    for (int i = offset; i < offset + length; i++) {
+                        if (buffer[i] == '\n') {
+                            lines[0]++;
+                        }
+                    }
+                }
+
+                @Override
+                public void write(String string, int offset, int length) {
+                    for (int i = string.indexOf('\n', offset); i >= 0 && i < offset + length;
+                         i = string.indexOf('\n', i + 1)) {
+                        lines[0]++;
+                    }
+                }
+
+                @Override
+                public void flush() {
+                }
+
+                @Override
+                public void close() {
+                }
+            });
+            return null;
+        });
+        var thread = new Thread(null, task, "printout", 256 * 1024);
+        thread.start();
+        task.get();
+
+        assertEquals(depth + 2, lines[0]);
+    }
+}